@@ -0,0 +1,179 @@
+import java.util.Arrays;
+
+// Dinic's algorithm: BFS level graph, then a blocking flow found with current-arc pointers.
+// The path search is iterative so long road-network paths cannot overflow the stack.
+// The long overloads run the same search on a LongFlowNetwork; only the residual type differs,
+// which generics cannot abstract over without boxing every arc.
+public class DinicSolver implements MaxFlowSolver {
+
+    @Override
+    public String getName() {
+        return "dinic";
+    }
+
+    @Override
+    public int maxFlow(FlowNetwork g, int[] residual, int source, int sink) {
+        if (source == sink) return 0;
+        int[] level = new int[g.V];
+        int[] queue = new int[g.V];
+        int[] currentArc = new int[g.V];
+        int[] pathArc = new int[g.V];
+        long maxFlow = 0;
+
+        while (buildLevels(g, residual, source, sink, level, queue)) {
+            System.arraycopy(g.first, 0, currentArc, 0, g.V);
+            maxFlow += blockingFlow(g, residual, source, sink, level, currentArc, pathArc);
+        }
+        return Math.toIntExact(maxFlow);
+    }
+
+    // Label every node with its BFS distance from the source; false if the sink is unreachable
+    private boolean buildLevels(FlowNetwork g, int[] residual, int source, int sink, int[] level, int[] queue) {
+        Arrays.fill(level, -1);
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = source;
+        level[source] = 0;
+
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+            if (u == sink) break;
+            for (int a = g.first[u], end = g.first[u + 1]; a < end; a++) {
+                int v = g.head[a];
+                if (level[v] == -1 && residual[a] > 0) {
+                    level[v] = level[u] + 1;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+        return level[sink] != -1;
+    }
+
+    private long blockingFlow(FlowNetwork g, int[] residual, int source, int sink,
+                              int[] level, int[] currentArc, int[] pathArc) {
+        long flow = 0;
+        int depth = 0;
+        int u = source;
+
+        while (true) {
+            if (u == sink) {
+                int pathFlow = Integer.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    pathFlow = Math.min(pathFlow, residual[pathArc[i]]);
+                }
+                int retreat = -1;
+                for (int i = 0; i < depth; i++) {
+                    int a = pathArc[i];
+                    residual[a] -= pathFlow;
+                    residual[g.rev[a]] += pathFlow;
+                    if (retreat == -1 && residual[a] == 0) retreat = i;
+                }
+                flow += pathFlow;
+                // Resume from the tail of the first saturated arc
+                depth = retreat;
+                u = depth == 0 ? source : g.head[pathArc[depth - 1]];
+                continue;
+            }
+
+            int end = g.first[u + 1];
+            int a = currentArc[u];
+            while (a < end && (residual[a] == 0 || level[g.head[a]] != level[u] + 1)) {
+                a++;
+            }
+            currentArc[u] = a;
+
+            if (a < end) {
+                pathArc[depth++] = a;
+                u = g.head[a];
+            } else {
+                // Dead end: drop u from the level graph and step back
+                level[u] = -1;
+                if (depth == 0) return flow;
+                depth--;
+                u = depth == 0 ? source : g.head[pathArc[depth - 1]];
+                currentArc[u]++;
+            }
+        }
+    }
+
+    // Maximum flow over long capacities, for networks whose flow does not fit in an int
+    public long maxFlow(LongFlowNetwork lg, long[] residual, int source, int sink) {
+        FlowNetwork g = lg.topology;
+        if (source == sink) return 0;
+        int[] level = new int[g.V];
+        int[] queue = new int[g.V];
+        int[] currentArc = new int[g.V];
+        int[] pathArc = new int[g.V];
+        long maxFlow = 0;
+
+        while (buildLevels(g, residual, source, sink, level, queue)) {
+            System.arraycopy(g.first, 0, currentArc, 0, g.V);
+            maxFlow = Math.addExact(maxFlow, blockingFlow(g, residual, source, sink, level, currentArc, pathArc));
+        }
+        return maxFlow;
+    }
+
+    private boolean buildLevels(FlowNetwork g, long[] residual, int source, int sink, int[] level, int[] queue) {
+        Arrays.fill(level, -1);
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = source;
+        level[source] = 0;
+
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+            if (u == sink) break;
+            for (int a = g.first[u], end = g.first[u + 1]; a < end; a++) {
+                int v = g.head[a];
+                if (level[v] == -1 && residual[a] > 0) {
+                    level[v] = level[u] + 1;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+        return level[sink] != -1;
+    }
+
+    private long blockingFlow(FlowNetwork g, long[] residual, int source, int sink,
+                              int[] level, int[] currentArc, int[] pathArc) {
+        long flow = 0;
+        int depth = 0;
+        int u = source;
+
+        while (true) {
+            if (u == sink) {
+                long pathFlow = Long.MAX_VALUE;
+                for (int i = 0; i < depth; i++) {
+                    pathFlow = Math.min(pathFlow, residual[pathArc[i]]);
+                }
+                int retreat = -1;
+                for (int i = 0; i < depth; i++) {
+                    int a = pathArc[i];
+                    residual[a] -= pathFlow;
+                    residual[g.rev[a]] += pathFlow;
+                    if (retreat == -1 && residual[a] == 0) retreat = i;
+                }
+                flow = Math.addExact(flow, pathFlow);
+                depth = retreat;
+                u = depth == 0 ? source : g.head[pathArc[depth - 1]];
+                continue;
+            }
+
+            int end = g.first[u + 1];
+            int a = currentArc[u];
+            while (a < end && (residual[a] == 0 || level[g.head[a]] != level[u] + 1)) {
+                a++;
+            }
+            currentArc[u] = a;
+
+            if (a < end) {
+                pathArc[depth++] = a;
+                u = g.head[a];
+            } else {
+                level[u] = -1;
+                if (depth == 0) return flow;
+                depth--;
+                u = depth == 0 ? source : g.head[pathArc[depth - 1]];
+                currentArc[u]++;
+            }
+        }
+    }
+}
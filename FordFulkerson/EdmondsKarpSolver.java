@@ -0,0 +1,61 @@
+import java.util.Arrays;
+
+// Ford-Fulkerson with BFS augmenting paths (Edmonds-Karp)
+public class EdmondsKarpSolver implements MaxFlowSolver {
+
+    @Override
+    public String getName() {
+        return "edmonds-karp";
+    }
+
+    @Override
+    public int maxFlow(FlowNetwork g, int[] residual, int source, int sink) {
+        return Math.toIntExact(augment(g, residual, source, sink, Long.MAX_VALUE));
+    }
+
+    // Push up to limit units from one node to another along shortest augmenting paths
+    static long augment(FlowNetwork g, int[] residual, int from, int to, long limit) {
+        int[] parentArc = new int[g.V];
+        int[] queue = new int[g.V];
+        long pushed = 0;
+
+        while (pushed < limit && bfs(g, residual, from, to, parentArc, queue)) {
+            int pathFlow = (int) Math.min(Integer.MAX_VALUE, limit - pushed);
+            for (int v = to; v != from; v = g.head[g.rev[parentArc[v]]]) {
+                pathFlow = Math.min(pathFlow, residual[parentArc[v]]);
+            }
+
+            for (int v = to; v != from; v = g.head[g.rev[parentArc[v]]]) {
+                int a = parentArc[v];
+                residual[a] -= pathFlow;
+                residual[g.rev[a]] += pathFlow;
+            }
+
+            pushed += pathFlow;
+        }
+        return pushed;
+    }
+
+    // BFS over the arcs of each dequeued node; parentArc[v] is the arc used to reach v
+    private static boolean bfs(FlowNetwork g, int[] residual, int source, int sink, int[] parentArc, int[] queue) {
+        Arrays.fill(parentArc, -1);
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = source;
+        parentArc[source] = Integer.MAX_VALUE;
+
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+
+            for (int a = g.first[u], end = g.first[u + 1]; a < end; a++) {
+                int v = g.head[a];
+                if (parentArc[v] == -1 && residual[a] > 0) {
+                    parentArc[v] = a;
+                    queue[qTail++] = v;
+
+                    if (v == sink) return true;
+                }
+            }
+        }
+        return false;
+    }
+}
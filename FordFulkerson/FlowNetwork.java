@@ -0,0 +1,78 @@
+import java.util.Arrays;
+
+// Compressed (CSR) residual graph. Every input edge u -> v becomes a forward arc stored
+// with the arcs of u and a zero-capacity reverse arc stored with the arcs of v; rev[]
+// links each arc to its partner so pushing flow is two array updates.
+public class FlowNetwork {
+
+    final int V;          // Number of vertices
+    final int[] first;    // arcs of node u are first[u] .. first[u + 1] - 1
+    final int[] head;     // target node of each arc
+    final int[] rev;      // index of the paired reverse arc
+    final int[] capacity; // original capacity of each arc (0 for reverse arcs)
+    final int[] edgeArc;  // forward arc of each input edge, in input order
+
+    FlowNetwork(int V, int[] first, int[] head, int[] rev, int[] capacity, int[] edgeArc) {
+        this.V = V;
+        this.first = first;
+        this.head = head;
+        this.rev = rev;
+        this.capacity = capacity;
+        this.edgeArc = edgeArc;
+    }
+
+    // Build the CSR arrays from the first edgeCount entries of the parallel edge arrays
+    public static FlowNetwork build(int V, int[] from, int[] to, int[] cap, int edgeCount) {
+        int[] first = new int[V + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            first[from[e] + 1]++;
+            first[to[e] + 1]++;
+        }
+        for (int u = 0; u < V; u++) {
+            first[u + 1] += first[u];
+        }
+
+        int arcs = first[V];
+        int[] head = new int[arcs];
+        int[] rev = new int[arcs];
+        int[] capacity = new int[arcs];
+        int[] edgeArc = new int[edgeCount];
+        int[] next = Arrays.copyOf(first, V);
+
+        for (int e = 0; e < edgeCount; e++) {
+            int u = from[e];
+            int v = to[e];
+            int a = next[u]++;
+            int b = next[v]++;
+            head[a] = v;
+            capacity[a] = cap[e];
+            rev[a] = b;
+            head[b] = u;
+            rev[b] = a;
+            edgeArc[e] = a;
+        }
+        return new FlowNetwork(V, first, head, rev, capacity, edgeArc);
+    }
+
+    public int getNumberOfVertices() {
+        return V;
+    }
+
+    public int getNumberOfEdges() {
+        return edgeArc.length;
+    }
+
+    // Tail node of an arc, found through its reverse arc
+    public int tail(int arc) {
+        return head[rev[arc]];
+    }
+
+    public int getNumberOfArcs() {
+        return head.length;
+    }
+
+    // Fresh residual capacities for one flow computation
+    public int[] newResidual() {
+        return capacity.clone();
+    }
+}
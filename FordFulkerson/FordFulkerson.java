@@ -1,123 +1,261 @@
 import java.io.*;
+import java.math.BigDecimal;
+import java.math.MathContext;
 import java.util.*;
 
 public class FordFulkerson {
 
-    private int[][] graph;
+    private FlowNetwork network;
     private int V; // Number of vertices
+    private MaxFlowSolver solver = new EdmondsKarpSolver();
+    private TntpNetwork tntp; // link attributes of the loaded file, if any
+    private MaxFlowResult lastResult; // most recent solve, repaired by capacity updates
+    private LongFlowNetwork longNetwork;
+
+    // Edges collected while loading, compressed into the network on first use
+    private int[] edgeFrom = new int[16];
+    private int[] edgeTo = new int[16];
+    private int[] edgeCapacity = new int[16];
+    private int edgeCount;
 
     public FordFulkerson(int V) {
         this.V = V;
-        this.graph = new int[V][V];
+    }
+
+    public void addEdge(int u, int v, int capacity) {
+        if (edgeCount == edgeFrom.length) {
+            int newLength = edgeCount * 2;
+            edgeFrom = Arrays.copyOf(edgeFrom, newLength);
+            edgeTo = Arrays.copyOf(edgeTo, newLength);
+            edgeCapacity = Arrays.copyOf(edgeCapacity, newLength);
+        }
+        edgeFrom[edgeCount] = u;
+        edgeTo[edgeCount] = v;
+        edgeCapacity[edgeCount] = capacity;
+        edgeCount++;
+        network = null;
+        lastResult = null;
+    }
+
+    public FlowNetwork getNetwork() {
+        if (network == null) {
+            network = FlowNetwork.build(V, edgeFrom, edgeTo, edgeCapacity, edgeCount);
+        }
+        return network;
     }
     
+    // Node count from the <NUMBER OF NODES> header, or -1 if the file does not declare it
     public static int getNumberOfNodes(String filePath) {
-        int numberOfNodes = -1; 
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-            	System.out.println("Inside while"+line);
-                if (line.contains("<NUMBER OF NODES>")) {
-                    String[] parts = line.split(">");
-                    if (parts.length > 1) {
-                        String numberString = parts[1].trim(); 
-                        numberOfNodes = Integer.parseInt(numberString); 
-                        break;
-                    }
-                }
-            }
+        try {
+            return TntpReader.readHeader(filePath).nodes;
         } catch (IOException e) {
             e.printStackTrace();
-        } catch (NumberFormatException e) {
-            System.out.println("Invalid number format in dataset.");
+            return -1;
         }
-        return numberOfNodes;
     }
-    
-    // Read graph edges from file and create an adjacency matrix
+
+    // Read graph edges from file and create the compressed residual graph
     public void loadGraphFromFile(String fileName) throws IOException {
-    		System.out.println("Opening input file: " + fileName);
-    	    BufferedReader br = new BufferedReader(new FileReader(fileName));
-    	    String line;
-    	    
-    	    
-    	    while ((line = br.readLine()) != null) {
-    	        
-	            String[] parts = line.trim().split("\\s+");
-	            
-	            try {
-	                
-	                int u = Integer.parseInt(parts[0]);
-	                
-	                int v = Integer.parseInt(parts[1]);
-	              
-	                int capacity = (int) Float.parseFloat(parts[2]);
-	                graph[u][v] = capacity;
-	                
-	                System.out.println("Added edge: " + u + " -> " + v + " with capacity: " + capacity);
-	            } catch (NumberFormatException e) {
-	                System.out.println("Skipping invalid line: " + line);
-	                continue;
-	            }
-    	    }
-    	    br.close();
-    	    System.out.println("Input file " + fileName + " closed.");
-    }
-
-    // BFS to check for path with residual capacity
-    private boolean bfs(int[][] residualGraph, int source, int sink, int[] parent) {
-        boolean[] visited = new boolean[V];
-        Queue<Integer> queue = new LinkedList<>();
-        queue.add(source);
-        visited[source] = true;
-        parent[source] = -1;
-
-        while (!queue.isEmpty()) {
-            int u = queue.poll();
-
-            for (int v = 0; v < V; v++) {
-                if (!visited[v] && residualGraph[u][v] > 0) {
-                    queue.add(v);
-                    parent[v] = u;
-                    visited[v] = true;
-
-                    if (v == sink) return true;
-                }
-            }
+        loadGraphFromFile(fileName, TntpReader.read(fileName));
+    }
+
+    private void loadGraphFromFile(String fileName, TntpNetwork tntp) {
+        System.out.println("Opening input file: " + fileName);
+        loadGraph(tntp);
+        System.out.println("Input file " + fileName + " closed.");
+    }
+
+    // Use the links of a parsed TNTP file as edges; capacities are truncated to whole vehicles
+    public void loadGraph(TntpNetwork tntp) {
+        this.tntp = tntp;
+        int links = tntp.getNumberOfLinks();
+        if (edgeFrom.length - edgeCount < links) {
+            int newLength = edgeCount + links;
+            edgeFrom = Arrays.copyOf(edgeFrom, newLength);
+            edgeTo = Arrays.copyOf(edgeTo, newLength);
+            edgeCapacity = Arrays.copyOf(edgeCapacity, newLength);
+        }
+        for (int link = 0; link < links; link++) {
+            addEdge(tntp.from[link], tntp.to[link], (int) tntp.capacity[link]);
         }
-        return false;
+        getNetwork();
+        System.out.println("Loaded " + links + " links between " + tntp.getNumberOfNodes() + " nodes.");
     }
 
-    // Ford-Fulkerson algorithm to find maximum flow
+    public TntpNetwork getTntpNetwork() {
+        return tntp;
+    }
+
+    int[] getEdgeCapacities() {
+        return edgeCapacity;
+    }
+
+    // Adopt a graph loaded from a binary snapshot; edges line up with the TNTP links
+    void restore(TntpNetwork tntp, int[] edgeCapacity, FlowNetwork network) {
+        this.tntp = tntp;
+        this.edgeFrom = tntp.from;
+        this.edgeTo = tntp.to;
+        this.edgeCapacity = edgeCapacity;
+        this.edgeCount = tntp.links;
+        this.network = network;
+    }
+
+    // Load a TNTP file, going through its binary snapshot when the file is unchanged.
+    // Returns null when the file has no links.
+    public static FordFulkerson fromFile(String inputFileName) throws IOException {
+        String snapshotFile = GraphSnapshot.snapshotFileFor(inputFileName);
+        FordFulkerson ff = GraphSnapshot.load(snapshotFile, inputFileName);
+        if (ff != null) {
+            System.out.println("Loaded graph snapshot " + snapshotFile);
+            return ff;
+        }
+
+        TntpNetwork tntp = TntpReader.read(inputFileName);
+        if (tntp.getNumberOfNodes() == -1 || tntp.getNumberOfLinks() == 0) {
+            return null;
+        }
+        ff = new FordFulkerson(tntp.getNumberOfNodes() + 1);
+        ff.loadGraphFromFile(inputFileName, tntp);
+        try {
+            GraphSnapshot.write(snapshotFile, inputFileName, ff);
+            System.out.println("Wrote graph snapshot " + snapshotFile);
+        } catch (IOException e) {
+            System.out.println("Could not write graph snapshot: " + e.getMessage());
+        }
+        return ff;
+    }
+
+    public void setSolver(MaxFlowSolver solver) {
+        this.solver = solver;
+    }
+
+    public MaxFlowSolver getSolver() {
+        return solver;
+    }
+
+    // Maximum flow from source to sink using the selected engine (Edmonds-Karp by default)
     public int fordFulkerson(int source, int sink) {
-        int[][] residualGraph = new int[V][V];
-        for (int u = 0; u < V; u++) {
-            System.arraycopy(graph[u], 0, residualGraph[u], 0, V);
+        FlowNetwork g = getNetwork();
+        return solver.maxFlow(g, g.newResidual(), source, sink);
+    }
+
+    // Same as fordFulkerson, but keeps the residual graph for flow and min-cut queries
+    public MaxFlowResult solve(int source, int sink) {
+        FlowNetwork g = getNetwork();
+        int[] residual = g.newResidual();
+        int maxFlow = solver.maxFlow(g, residual, source, sink);
+        lastResult = new MaxFlowResult(g, residual, source, sink, maxFlow);
+        return lastResult;
+    }
+
+    // Maximum flow with long capacities, in units of 1/scale. Capacities come from the
+    // untruncated TNTP values when the graph was loaded from a file.
+    public long fordFulkersonLong(int source, int sink, long scale) {
+        FlowNetwork g = getNetwork();
+        if (longNetwork == null || longNetwork.topology != g || longNetwork.scale != scale) {
+            longNetwork = tntp != null && tntp.links == edgeCount
+                    ? LongFlowNetwork.fromTntp(g, tntp, scale)
+                    : LongFlowNetwork.fromNetwork(g, scale);
         }
+        return new DinicSolver().maxFlow(longNetwork, longNetwork.newResidual(), source, sink);
+    }
+
+    public MaxFlowResult getLastResult() {
+        return lastResult;
+    }
 
-        int[] parent = new int[V];
-        int maxFlow = 0;
+    public int updateCapacity(int edge, int capacity) {
+        return updateCapacities(new int[] {edge}, new int[] {capacity});
+    }
 
-        while (bfs(residualGraph, source, sink, parent)) {
-            int pathFlow = Integer.MAX_VALUE;
-            for (int v = sink; v != source; v = parent[v]) {
-                int u = parent[v];
-                pathFlow = Math.min(pathFlow, residualGraph[u][v]);
+    // Change the capacity of the given input edges. If a flow has been solved, it is repaired
+    // instead of recomputed: flow above a reduced capacity is rerouted or cancelled back to
+    // the source and sink, then the selected engine augments on the updated residual graph.
+    // The capacities and the residual are copied first, so results and batches handed out
+    // earlier keep seeing the graph they were solved on.
+    // Returns the new maximum flow, or -1 if nothing has been solved yet.
+    public int updateCapacities(int[] edges, int[] capacities) {
+        if (edges.length != capacities.length) {
+            throw new IllegalArgumentException(edges.length + " edges but " + capacities.length + " capacities");
+        }
+        for (int i = 0; i < edges.length; i++) {
+            if (edges[i] < 0 || edges[i] >= edgeCount) {
+                throw new IllegalArgumentException("No edge " + edges[i] + " (" + edgeCount + " edges)");
             }
+            if (capacities[i] < 0) {
+                throw new IllegalArgumentException("Negative capacity for edge " + edges[i] + ": " + capacities[i]);
+            }
+        }
 
-            for (int v = sink; v != source; v = parent[v]) {
-                int u = parent[v];
-                residualGraph[u][v] -= pathFlow;
-                residualGraph[v][u] += pathFlow;
+        FlowNetwork old = getNetwork();
+        FlowNetwork g = new FlowNetwork(old.V, old.first, old.head, old.rev, old.capacity.clone(), old.edgeArc);
+        network = g;
+        longNetwork = null;
+        edgeCapacity = edgeCapacity.clone();
+        boolean tntpCapacities = tntp != null && tntp.links == edgeCount;
+        if (tntpCapacities) {
+            tntp = tntp.withCapacity(tntp.capacity.clone());
+        }
+        int[] residual = lastResult == null ? null : lastResult.getResidual().clone();
+        int maxFlow = lastResult == null ? 0 : lastResult.getMaxFlow();
+
+        for (int i = 0; i < edges.length; i++) {
+            int e = edges[i];
+            int capacity = capacities[i];
+            int a = g.edgeArc[e];
+            int oldCapacity = g.capacity[a];
+            g.capacity[a] = capacity;
+            edgeCapacity[e] = capacity;
+            if (tntpCapacities) {
+                tntp.capacity[e] = capacity;
             }
+            if (residual == null) continue;
 
-            maxFlow += pathFlow;
+            int flow = oldCapacity - residual[a];
+            if (capacity >= flow) {
+                residual[a] = capacity - flow;
+                continue;
+            }
+            int excess = flow - capacity;
+            residual[a] = 0;
+            residual[g.rev[a]] = capacity;
+            maxFlow = Math.subtractExact(maxFlow, cancelExcess(g, residual, g.tail(a), g.head[a], excess));
         }
+
+        if (lastResult == null) return -1;
+        int source = lastResult.getSource();
+        int sink = lastResult.getSink();
+        maxFlow = Math.addExact(maxFlow, solver.maxFlow(g, residual, source, sink));
+        lastResult = new MaxFlowResult(g, residual, source, sink, maxFlow);
         return maxFlow;
     }
 
+    // Edge u -> v lost `excess` units: try to reroute them from u to v, otherwise send the rest
+    // back from u to the source and pull it from the sink to v. Returns the flow value lost.
+    // The units that reached u came from the source and the units that left v reach the sink,
+    // so both cancelling paths always carry the full remainder.
+    private int cancelExcess(FlowNetwork g, int[] residual, int u, int v, int excess) {
+        int source = lastResult.getSource();
+        int sink = lastResult.getSink();
+        int remaining = excess - (int) EdmondsKarpSolver.augment(g, residual, u, v, excess);
+        if (remaining == 0) return 0;
+        if (u != source) {
+            long back = EdmondsKarpSolver.augment(g, residual, u, source, remaining);
+            assert back == remaining : "cancelled " + back + " of " + remaining + " units back to the source";
+        }
+        if (v != sink) {
+            long pulled = EdmondsKarpSolver.augment(g, residual, sink, v, remaining);
+            assert pulled == remaining : "pulled " + pulled + " of " + remaining + " units from the sink";
+        }
+        return remaining;
+    }
+
     // Write the maximum flow result to an output file
     public void writeOutputToFile(String fileName, int maxFlow) throws IOException {
+        writeOutputToFile(fileName, String.valueOf(maxFlow));
+    }
+
+    private void writeOutputToFile(String fileName, String maxFlow) throws IOException {
         System.out.println("Opening output file: " + fileName);
         BufferedWriter bw = new BufferedWriter(new FileWriter(fileName));
         bw.write("The maximum number of cars that can travel from first node to last node(based on number)in the city of Chicago is"+" "+ maxFlow);
@@ -125,33 +263,113 @@ public class FordFulkerson {
         System.out.println("Output file " + fileName + " closed.");
     }
 
+    // List the saturated links of the minimum cut, i.e. the links that limit the flow
+    public void writeBottleneckReport(String fileName, MaxFlowResult result) throws IOException {
+        System.out.println("Opening output file: " + fileName);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
+            int[] cut = result.getMinCutEdges();
+            bw.write("Minimum cut between node " + result.getSource() + " and node " + result.getSink()
+                    + ": " + cut.length + " links, total capacity " + result.getMaxFlow()
+                    + ", " + result.getSourceSideSize() + " nodes on the source side");
+            bw.newLine();
+            bw.write("link\tfrom\tto\tcapacity\tflow\tlength\tfree_flow_time");
+            bw.newLine();
+            for (int e : cut) {
+                bw.write(e + "\t" + edgeFrom[e] + "\t" + edgeTo[e] + "\t" + edgeCapacity[e] + "\t" + result.getFlow(e));
+                if (tntp != null) {
+                    bw.write("\t" + tntp.length[e] + "\t" + tntp.freeFlowTime[e]);
+                }
+                bw.newLine();
+            }
+        }
+        System.out.println("Output file " + fileName + " closed.");
+    }
+
+    // java FordFulkerson [engine [pairs file]] [--long[=scale]]
+    // --long solves the single pair with long capacities taken from the untruncated TNTP values,
+    // in units of 1/scale (default 1), for flows that overflow an int
     public static void main(String[] args) {
+        long longScale = 0;
+        List<String> positional = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--long")) {
+                longScale = 1;
+            } else if (arg.startsWith("--long=")) {
+                try {
+                    longScale = Long.parseLong(arg.substring("--long=".length()));
+                } catch (NumberFormatException e) {
+                    longScale = -1;
+                }
+                if (longScale < 1) {
+                    System.out.println("--long scale must be a positive integer: " + arg);
+                    return;
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+
         try {
             String store=System.getProperty("user.dir");
             String inputFileName =store+"\\OOPSproject\\FordFulkerson\\Chicago.tntp";
             System.out.println(inputFileName);
-            int V = getNumberOfNodes(inputFileName); 
-            if(V==-1) {
+            FordFulkerson ff = fromFile(inputFileName);
+            if(ff==null) {
             	System.out.println("THe file either has differnet input format or does not have number of nodes specified");
             	return;
             }
-            FordFulkerson ff = new FordFulkerson(V+1);
-            ff.loadGraphFromFile(inputFileName);
+            int V = ff.V - 1;
+            if (args.length > 0) {
+                ff.setSolver(MaxFlowSolver.forName(args[0]));
+            }
+            System.out.println("Max-flow engine: " + ff.getSolver().getName());
+
+            // Batch mode: solve every pair listed in the file given as second argument
+            if (args.length > 1) {
+                String engine = args[0];
+                MaxFlowBatch batch = new MaxFlowBatch(ff.getNetwork(), () -> MaxFlowSolver.forName(engine));
+                batch.loadPairsFromFile(args[1]);
+                int threads = Runtime.getRuntime().availableProcessors();
+                long startTime = System.currentTimeMillis();
+                int[] flows = batch.solve(threads);
+                long duration = System.currentTimeMillis() - startTime;
+                System.out.println("Solved " + batch.getPairCount() + " pairs on " + threads + " threads in milliseconds: " + duration);
+                String outputFileName = store+"\\OOPSproject\\FordFulkerson\\batch_output.txt";
+                batch.writeResultsToFile(outputFileName, flows);
+                return;
+            }
 
             int source = 1;
             int sink = V - 1; 
+            String outputFileName = store+"\\OOPSproject\\FordFulkerson\\output.txt";
+            if (longScale > 0) {
+                long startTime = System.currentTimeMillis();
+                long flow = ff.fordFulkersonLong(source, sink, longScale);
+                System.out.println("Execution time in milliseconds (long capacities): " + (System.currentTimeMillis() - startTime));
+                String maxFlow = longScale == 1 ? String.valueOf(flow)
+                        : BigDecimal.valueOf(flow).divide(BigDecimal.valueOf(longScale), MathContext.DECIMAL64)
+                                .stripTrailingZeros().toPlainString();
+                ff.writeOutputToFile(outputFileName, maxFlow);
+                System.out.println("The maximum flow has been calculated and written to " + outputFileName);
+                return;
+            }
             long startTime = System.currentTimeMillis();
-            int maxFlow = ff.fordFulkerson(source, sink);
+            MaxFlowResult result = ff.solve(source, sink);
+            int maxFlow = result.getMaxFlow();
             long endTime = System.currentTimeMillis();
             long duration = endTime - startTime;
             System.out.println("Execution time in milliseconds: " + duration);
-            String outputFileName = store+"\\OOPSproject\\FordFulkerson\\output.txt";
             ff.writeOutputToFile(outputFileName, maxFlow);
+            ff.writeBottleneckReport(store+"\\OOPSproject\\FordFulkerson\\bottlenecks.txt", result);
 
             System.out. println("The maximum flow has been calculated and written to " + outputFileName);
 
         } catch (IOException e) {
             System.err.println("Error reading or writing file: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch run interrupted.");
         }
     }
 }
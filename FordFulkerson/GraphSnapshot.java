@@ -0,0 +1,189 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+
+// Binary cache of a loaded TNTP graph: header, link attributes and the CSR arrays, tagged
+// with the size and modification time of the source file. Snapshots are memory-mapped on
+// load and ignored as soon as the source file no longer matches, or when they do not decode.
+public class GraphSnapshot {
+
+    private static final int MAGIC = 0x46464e53; // "FFNS"
+    private static final int VERSION = 4;
+    private static final int HEADER_BYTES = 4 * 2 + 8 * 2 + 4 * 8;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    public static String snapshotFileFor(String sourceFile) {
+        return sourceFile + ".snapshot";
+    }
+
+    // Load the snapshot if it was written for the current version of sourceFile, else null.
+    // A truncated or corrupt snapshot also gives null, so the caller parses the text again.
+    public static FordFulkerson load(String snapshotFile, String sourceFile) throws IOException {
+        Path snapshotPath = Paths.get(snapshotFile);
+        Path sourcePath = Paths.get(sourceFile);
+        if (!Files.isRegularFile(snapshotPath) || Files.size(snapshotPath) < HEADER_BYTES
+                || Files.size(snapshotPath) > Integer.MAX_VALUE || !Files.isRegularFile(sourcePath)) return null;
+
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (buf.getLong() != Files.size(sourcePath)
+                    || buf.getLong() != Files.getLastModifiedTime(sourcePath).toMillis()) return null;
+            return decode(buf, channel.size());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // The graph after the tag, or null if the counts do not add up to the file size
+    private static FordFulkerson decode(MappedByteBuffer buf, long fileSize) {
+        int V = buf.getInt();
+        TntpNetwork tntp = new TntpNetwork(0);
+        tntp.zones = buf.getInt();
+        tntp.nodes = buf.getInt();
+        tntp.firstThruNode = buf.getInt();
+        tntp.declaredLinks = buf.getInt();
+        tntp.maxNode = buf.getInt();
+        tntp.links = buf.getInt();
+        int arcs = buf.getInt();
+
+        int links = tntp.links;
+        if (V < 1 || links < 0 || arcs < 0 || arcs != 2L * links) return null;
+        long expected = HEADER_BYTES + 8L * links + 4L * (11L * links + V + 1 + 3L * arcs);
+        if (expected != fileSize) return null;
+        tntp.from = readInts(buf, links);
+        tntp.to = readInts(buf, links);
+        tntp.linkType = readInts(buf, links);
+        tntp.capacity = readDoubles(buf, links);
+        tntp.length = readFloats(buf, links);
+        tntp.freeFlowTime = readFloats(buf, links);
+        tntp.b = readFloats(buf, links);
+        tntp.power = readFloats(buf, links);
+        tntp.speed = readFloats(buf, links);
+        tntp.toll = readFloats(buf, links);
+        int[] edgeCapacity = readInts(buf, links);
+
+        int[] first = readInts(buf, V + 1);
+        int[] head = readInts(buf, arcs);
+        int[] rev = readInts(buf, arcs);
+        int[] capacity = readInts(buf, arcs);
+        int[] edgeArc = readInts(buf, links);
+
+        if (!validTopology(V, links, first, head, rev, edgeArc)) return null;
+
+        FordFulkerson ff = new FordFulkerson(V);
+        ff.restore(tntp, edgeCapacity, new FlowNetwork(V, first, head, rev, capacity, edgeArc));
+        return ff;
+    }
+
+    // Arc offsets ascend to the arc count and every node or arc index is in range, so a
+    // damaged snapshot cannot send a solver out of bounds
+    private static boolean validTopology(int V, int links, int[] first, int[] head, int[] rev, int[] edgeArc) {
+        int arcs = head.length;
+        if (first[0] != 0 || first[V] != arcs) return false;
+        for (int u = 0; u < V; u++) {
+            if (first[u] > first[u + 1]) return false;
+        }
+        for (int a = 0; a < arcs; a++) {
+            if (head[a] < 0 || head[a] >= V || rev[a] < 0 || rev[a] >= arcs || rev[rev[a]] != a) return false;
+        }
+        for (int e = 0; e < links; e++) {
+            if (edgeArc[e] < 0 || edgeArc[e] >= arcs) return false;
+        }
+        return true;
+    }
+
+    public static void write(String snapshotFile, String sourceFile, FordFulkerson ff) throws IOException {
+        TntpNetwork tntp = ff.getTntpNetwork();
+        FlowNetwork g = ff.getNetwork();
+        Path sourcePath = Paths.get(sourceFile);
+        int links = tntp.links;
+        int arcs = g.getNumberOfArcs();
+
+        // Write next to the target and rename, so a crashed run never leaves a torn snapshot
+        Path target = Paths.get(snapshotFile);
+        Path temp = Paths.get(snapshotFile + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION);
+            buf.putLong(Files.size(sourcePath)).putLong(Files.getLastModifiedTime(sourcePath).toMillis());
+            buf.putInt(g.V).putInt(tntp.zones).putInt(tntp.nodes).putInt(tntp.firstThruNode)
+               .putInt(tntp.declaredLinks).putInt(tntp.maxNode).putInt(links).putInt(arcs);
+
+            writeInts(channel, buf, tntp.from, links);
+            writeInts(channel, buf, tntp.to, links);
+            writeInts(channel, buf, tntp.linkType, links);
+            writeDoubles(channel, buf, tntp.capacity, links);
+            writeFloats(channel, buf, tntp.length, links);
+            writeFloats(channel, buf, tntp.freeFlowTime, links);
+            writeFloats(channel, buf, tntp.b, links);
+            writeFloats(channel, buf, tntp.power, links);
+            writeFloats(channel, buf, tntp.speed, links);
+            writeFloats(channel, buf, tntp.toll, links);
+            writeInts(channel, buf, ff.getEdgeCapacities(), links);
+
+            writeInts(channel, buf, g.first, g.V + 1);
+            writeInts(channel, buf, g.head, arcs);
+            writeInts(channel, buf, g.rev, arcs);
+            writeInts(channel, buf, g.capacity, arcs);
+            writeInts(channel, buf, g.edgeArc, links);
+            flush(channel, buf);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int[] readInts(ByteBuffer buf, int count) {
+        int[] values = new int[count];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + 4 * count);
+        return values;
+    }
+
+    private static float[] readFloats(ByteBuffer buf, int count) {
+        float[] values = new float[count];
+        buf.asFloatBuffer().get(values);
+        buf.position(buf.position() + 4 * count);
+        return values;
+    }
+
+    private static double[] readDoubles(ByteBuffer buf, int count) {
+        double[] values = new double[count];
+        buf.asDoubleBuffer().get(values);
+        buf.position(buf.position() + 8 * count);
+        return values;
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buf, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (buf.remaining() < 4) flush(channel, buf);
+            buf.putInt(values[i]);
+        }
+    }
+
+    private static void writeFloats(FileChannel channel, ByteBuffer buf, float[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (buf.remaining() < 4) flush(channel, buf);
+            buf.putFloat(values[i]);
+        }
+    }
+
+    private static void writeDoubles(FileChannel channel, ByteBuffer buf, double[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            if (buf.remaining() < 8) flush(channel, buf);
+            buf.putDouble(values[i]);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -0,0 +1,50 @@
+// FlowNetwork with long capacities. It shares the CSR topology (first, head, rev, edgeArc)
+// with an int network and only adds a long capacity per arc, optionally in fixed point:
+// with scale 1000 a TNTP capacity of 1234.5678 is stored as 1234568.
+public class LongFlowNetwork {
+
+    final FlowNetwork topology;
+    final long[] capacity;
+    final long scale;
+
+    private LongFlowNetwork(FlowNetwork topology, long[] capacity, long scale) {
+        this.topology = topology;
+        this.capacity = capacity;
+        this.scale = scale;
+    }
+
+    // Widen the int capacities of a network, multiplied by scale
+    public static LongFlowNetwork fromNetwork(FlowNetwork g, long scale) {
+        long[] capacity = new long[g.capacity.length];
+        for (int a = 0; a < capacity.length; a++) {
+            capacity[a] = Math.multiplyExact((long) g.capacity[a], scale);
+        }
+        return new LongFlowNetwork(g, capacity, scale);
+    }
+
+    // Use the untruncated TNTP capacities, rounded to 1/scale; edges must line up with links
+    public static LongFlowNetwork fromTntp(FlowNetwork g, TntpNetwork tntp, long scale) {
+        long[] capacity = new long[g.capacity.length];
+        for (int e = 0; e < tntp.links; e++) {
+            capacity[g.edgeArc[e]] = Math.round(tntp.capacity[e] * scale);
+        }
+        return new LongFlowNetwork(g, capacity, scale);
+    }
+
+    public FlowNetwork getTopology() {
+        return topology;
+    }
+
+    public long getScale() {
+        return scale;
+    }
+
+    // Convert a flow value in fixed-point units back to capacity units
+    public double unscale(long flow) {
+        return (double) flow / scale;
+    }
+
+    public long[] newResidual() {
+        return capacity.clone();
+    }
+}
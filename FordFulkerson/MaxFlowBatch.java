@@ -0,0 +1,113 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+// Solves many (source, sink) pairs on one loaded network in parallel. The network is shared
+// read-only; each task borrows a residual buffer from a pool and resets it from the capacities.
+public class MaxFlowBatch {
+
+    private final FlowNetwork network;
+    private final ThreadLocal<MaxFlowSolver> solvers;
+    private final ConcurrentLinkedQueue<int[]> residualPool = new ConcurrentLinkedQueue<>();
+
+    private int[] sources = new int[16];
+    private int[] sinks = new int[16];
+    private int pairCount;
+
+    public MaxFlowBatch(FlowNetwork network, Supplier<MaxFlowSolver> solverFactory) {
+        this.network = network;
+        this.solvers = ThreadLocal.withInitial(solverFactory);
+    }
+
+    public void addPair(int source, int sink) {
+        if (pairCount == sources.length) {
+            sources = Arrays.copyOf(sources, pairCount * 2);
+            sinks = Arrays.copyOf(sinks, pairCount * 2);
+        }
+        sources[pairCount] = source;
+        sinks[pairCount] = sink;
+        pairCount++;
+    }
+
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    // Read "source sink" pairs, one per line; blank lines and lines starting with # are skipped
+    public void loadPairsFromFile(String fileName) throws IOException {
+        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split("\\s+");
+                try {
+                    int source = Integer.parseInt(parts[0]);
+                    int sink = Integer.parseInt(parts[1]);
+                    if (source < 0 || source >= network.V || sink < 0 || sink >= network.V) {
+                        System.out.println("Skipping pair outside the network: " + line);
+                        continue;
+                    }
+                    addPair(source, sink);
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    System.out.println("Skipping invalid line: " + line);
+                }
+            }
+        }
+    }
+
+    // Compute the maximum flow of every pair using the given number of worker threads
+    public int[] solve(int threads) throws InterruptedException {
+        int[] flows = new int[pairCount];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(pairCount);
+            for (int i = 0; i < pairCount; i++) {
+                final int pair = i;
+                tasks.add(() -> {
+                    int[] residual = acquireResidual();
+                    try {
+                        flows[pair] = solvers.get().maxFlow(network, residual, sources[pair], sinks[pair]);
+                    } finally {
+                        residualPool.offer(residual);
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Max-flow task failed", e.getCause());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return flows;
+    }
+
+    private int[] acquireResidual() {
+        int[] residual = residualPool.poll();
+        if (residual == null) {
+            return network.newResidual();
+        }
+        System.arraycopy(network.capacity, 0, residual, 0, residual.length);
+        return residual;
+    }
+
+    // Write one tab-separated row per pair
+    public void writeResultsToFile(String fileName, int[] flows) throws IOException {
+        System.out.println("Opening output file: " + fileName);
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
+            bw.write("source\tsink\tmax_flow");
+            bw.newLine();
+            for (int i = 0; i < pairCount; i++) {
+                bw.write(sources[i] + "\t" + sinks[i] + "\t" + flows[i]);
+                bw.newLine();
+            }
+        }
+        System.out.println("Output file " + fileName + " closed.");
+    }
+}
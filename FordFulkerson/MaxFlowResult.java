@@ -0,0 +1,112 @@
+import java.util.Arrays;
+
+// Outcome of one max-flow run: the flow value, the final residual graph and what can be read
+// from it. The source side of the minimum cut is found with one BFS over the residual arcs,
+// and the cut edges with one pass over the input edges.
+public class MaxFlowResult {
+
+    private final FlowNetwork network;
+    private final int[] residual;
+    private final int source;
+    private final int sink;
+    private final int maxFlow;
+    private final boolean[] sourceSide;
+    private final int[] minCutEdges;
+
+    public MaxFlowResult(FlowNetwork network, int[] residual, int source, int sink, int maxFlow) {
+        this.network = network;
+        this.residual = residual;
+        this.source = source;
+        this.sink = sink;
+        this.maxFlow = maxFlow;
+        this.sourceSide = reachableFromSource();
+        this.minCutEdges = cutEdges();
+    }
+
+    private boolean[] reachableFromSource() {
+        FlowNetwork g = network;
+        boolean[] reached = new boolean[g.V];
+        int[] queue = new int[g.V];
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = source;
+        reached[source] = true;
+        while (qHead < qTail) {
+            int u = queue[qHead++];
+            for (int a = g.first[u], end = g.first[u + 1]; a < end; a++) {
+                int v = g.head[a];
+                if (!reached[v] && residual[a] > 0) {
+                    reached[v] = true;
+                    queue[qTail++] = v;
+                }
+            }
+        }
+        return reached;
+    }
+
+    private int[] cutEdges() {
+        FlowNetwork g = network;
+        int edges = g.getNumberOfEdges();
+        int count = 0;
+        int[] cut = new int[16];
+        for (int e = 0; e < edges; e++) {
+            int a = g.edgeArc[e];
+            if (g.capacity[a] > 0 && sourceSide[g.tail(a)] && !sourceSide[g.head[a]]) {
+                if (count == cut.length) cut = Arrays.copyOf(cut, count * 2);
+                cut[count++] = e;
+            }
+        }
+        return Arrays.copyOf(cut, count);
+    }
+
+    public int getMaxFlow() {
+        return maxFlow;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    public int getSink() {
+        return sink;
+    }
+
+    public FlowNetwork getNetwork() {
+        return network;
+    }
+
+    // Flow assigned to input edge e
+    public int getFlow(int edge) {
+        int a = network.edgeArc[edge];
+        return network.capacity[a] - residual[a];
+    }
+
+    public int[] getEdgeFlows() {
+        int[] flows = new int[network.getNumberOfEdges()];
+        for (int e = 0; e < flows.length; e++) {
+            flows[e] = getFlow(e);
+        }
+        return flows;
+    }
+
+    // True if the node is still reachable from the source in the residual graph
+    public boolean isSourceSide(int node) {
+        return sourceSide[node];
+    }
+
+    public int getSourceSideSize() {
+        int size = 0;
+        for (boolean reached : sourceSide) {
+            if (reached) size++;
+        }
+        return size;
+    }
+
+    // Input edges crossing from the source side to the sink side; their capacities sum to the max flow
+    public int[] getMinCutEdges() {
+        return minCutEdges.clone();
+    }
+
+    int[] getResidual() {
+        return residual;
+    }
+}
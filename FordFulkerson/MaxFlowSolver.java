@@ -0,0 +1,26 @@
+// Max-flow engine working on a FlowNetwork. The residual array holds one capacity per arc
+// and is updated in place, so callers can inspect the final residual graph afterwards.
+// Flow is accumulated in a long; a result that does not fit in an int throws
+// ArithmeticException, in which case FordFulkerson.fordFulkersonLong is needed.
+public interface MaxFlowSolver {
+
+    int maxFlow(FlowNetwork g, int[] residual, int source, int sink);
+
+    String getName();
+
+    // Look up an engine by the name used on the command line
+    static MaxFlowSolver forName(String name) {
+        switch (name.toLowerCase()) {
+            case "edmonds-karp":
+            case "bfs":
+                return new EdmondsKarpSolver();
+            case "dinic":
+                return new DinicSolver();
+            case "push-relabel":
+            case "hlpp":
+                return new PushRelabelSolver();
+            default:
+                throw new IllegalArgumentException("Unknown max-flow engine: " + name);
+        }
+    }
+}
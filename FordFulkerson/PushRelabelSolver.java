@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+// Highest-label push-relabel with the gap and global relabeling heuristics.
+// Nodes that cannot reach the sink are lifted above V and drain their excess back to the
+// source, so the residual array ends up describing a valid flow rather than a preflow.
+public class PushRelabelSolver implements MaxFlowSolver {
+
+    private int V;
+    private int[] height;
+    private long[] excess;
+    private int[] currentArc;
+    private int[] count;       // number of nodes at each height
+    private int[] bucketHead;  // active nodes by height, singly linked through nextActive
+    private int[] nextActive;
+    private int[] queue;
+    private int highest;
+
+    @Override
+    public String getName() {
+        return "push-relabel";
+    }
+
+    @Override
+    public int maxFlow(FlowNetwork g, int[] residual, int source, int sink) {
+        if (source == sink) return 0;
+        V = g.V;
+        height = new int[V];
+        excess = new long[V];
+        currentArc = new int[V];
+        count = new int[2 * V + 1];
+        bucketHead = new int[2 * V + 1];
+        nextActive = new int[V];
+        queue = new int[V];
+
+        for (int a = g.first[source], end = g.first[source + 1]; a < end; a++) {
+            int c = residual[a];
+            if (c > 0) {
+                residual[a] = 0;
+                residual[g.rev[a]] += c;
+                excess[g.head[a]] += c;
+            }
+        }
+        globalRelabel(g, residual, source, sink);
+
+        int relabelsSinceGlobal = 0;
+        while (highest >= 0) {
+            int u = bucketHead[highest];
+            if (u == -1) {
+                highest--;
+                continue;
+            }
+            bucketHead[highest] = nextActive[u];
+
+            // Discharge u
+            while (excess[u] > 0) {
+                int a = currentArc[u];
+                if (a == g.first[u + 1]) {
+                    int oldHeight = height[u];
+                    relabel(g, residual, u);
+                    relabelsSinceGlobal++;
+                    if (count[oldHeight] == 0 && oldHeight < V) {
+                        gap(g, oldHeight, source);
+                    }
+                    // A node with excess always has a residual path back to the source, and the
+                    // labels stay valid (height[x] <= height[y] + 1 on residual arcs; gap only lifts
+                    // nodes whose residual neighbours are above the gap), so height[u] is at most
+                    // height[source] + V - 1 = 2V - 1 and the discharge always finds an arc
+                    assert height[u] < 2 * V : "active node without a residual arc";
+                    continue;
+                }
+                int v = g.head[a];
+                if (residual[a] > 0 && height[u] == height[v] + 1) {
+                    int delta = (int) Math.min(excess[u], residual[a]);
+                    if (excess[v] == 0 && v != source && v != sink) {
+                        activate(v);
+                    }
+                    residual[a] -= delta;
+                    residual[g.rev[a]] += delta;
+                    excess[u] -= delta;
+                    excess[v] += delta;
+                } else {
+                    currentArc[u]++;
+                }
+            }
+
+            if (relabelsSinceGlobal >= V) {
+                relabelsSinceGlobal = 0;
+                globalRelabel(g, residual, source, sink);
+            }
+        }
+        return Math.toIntExact(excess[sink]);
+    }
+
+    private void activate(int v) {
+        int h = height[v];
+        nextActive[v] = bucketHead[h];
+        bucketHead[h] = v;
+        if (h > highest) highest = h;
+    }
+
+    private void relabel(FlowNetwork g, int[] residual, int u) {
+        count[height[u]]--;
+        int newHeight = 2 * V;
+        int arc = g.first[u + 1];
+        for (int a = g.first[u], end = g.first[u + 1]; a < end; a++) {
+            if (residual[a] > 0 && height[g.head[a]] + 1 < newHeight) {
+                newHeight = height[g.head[a]] + 1;
+                arc = a;
+            }
+        }
+        height[u] = newHeight;
+        currentArc[u] = arc;
+        count[newHeight]++;
+    }
+
+    // No node is left at height h, so nodes strictly between h and V can no longer reach the sink
+    private void gap(FlowNetwork g, int h, int source) {
+        for (int x = 0; x < V; x++) {
+            if (x != source && height[x] > h && height[x] < V) {
+                count[height[x]]--;
+                height[x] = V + 1;
+                count[V + 1]++;
+                currentArc[x] = g.first[x];
+            }
+        }
+    }
+
+    // Exact heights: BFS distance to the sink in the residual graph, or V + distance to the
+    // source for nodes that have been cut off from the sink
+    private void globalRelabel(FlowNetwork g, int[] residual, int source, int sink) {
+        Arrays.fill(height, 2 * V);
+        Arrays.fill(count, 0);
+        Arrays.fill(bucketHead, -1);
+        highest = -1;
+
+        height[source] = V;
+        height[sink] = 0;
+        reverseBfs(g, residual, sink);
+        reverseBfs(g, residual, source);
+
+        for (int x = 0; x < V; x++) {
+            currentArc[x] = g.first[x];
+            if (x == source) continue;
+            if (height[x] >= 2 * V) height[x] = 2 * V - 1;
+            count[height[x]]++;
+            if (excess[x] > 0 && x != sink) activate(x);
+        }
+    }
+
+    private void reverseBfs(FlowNetwork g, int[] residual, int root) {
+        int qHead = 0, qTail = 0;
+        queue[qTail++] = root;
+        while (qHead < qTail) {
+            int x = queue[qHead++];
+            for (int a = g.first[x], end = g.first[x + 1]; a < end; a++) {
+                int y = g.head[a];
+                if (height[y] == 2 * V && residual[g.rev[a]] > 0) {
+                    height[y] = height[x] + 1;
+                    queue[qTail++] = y;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+// Links of a TNTP network file together with its metadata header. Link attributes are kept
+// in parallel primitive arrays indexed by link number, in file order. Capacities are doubles,
+// so large or finely fractional values survive for the fixed-point long solver.
+public class TntpNetwork {
+
+    int zones = -1;
+    int nodes = -1;
+    int firstThruNode = -1;
+    int declaredLinks = -1;
+    int maxNode;
+
+    int links;
+    int[] from;
+    int[] to;
+    double[] capacity;
+    float[] length;
+    float[] freeFlowTime;
+    float[] b;
+    float[] power;
+    float[] speed;
+    float[] toll;
+    int[] linkType;
+
+    TntpNetwork(int expectedLinks) {
+        allocate(Math.max(expectedLinks, 16));
+    }
+
+    void allocate(int size) {
+        from = resize(from, size);
+        to = resize(to, size);
+        linkType = resize(linkType, size);
+        capacity = resize(capacity, size);
+        length = resize(length, size);
+        freeFlowTime = resize(freeFlowTime, size);
+        b = resize(b, size);
+        power = resize(power, size);
+        speed = resize(speed, size);
+        toll = resize(toll, size);
+    }
+
+    private static int[] resize(int[] array, int size) {
+        return array == null ? new int[size] : Arrays.copyOf(array, size);
+    }
+
+    private static float[] resize(float[] array, int size) {
+        return array == null ? new float[size] : Arrays.copyOf(array, size);
+    }
+
+    private static double[] resize(double[] array, int size) {
+        return array == null ? new double[size] : Arrays.copyOf(array, size);
+    }
+
+    // Copy sharing every array except capacity
+    TntpNetwork withCapacity(double[] capacity) {
+        TntpNetwork copy = new TntpNetwork(0);
+        copy.zones = zones;
+        copy.nodes = nodes;
+        copy.firstThruNode = firstThruNode;
+        copy.declaredLinks = declaredLinks;
+        copy.maxNode = maxNode;
+        copy.links = links;
+        copy.from = from;
+        copy.to = to;
+        copy.capacity = capacity;
+        copy.length = length;
+        copy.freeFlowTime = freeFlowTime;
+        copy.b = b;
+        copy.power = power;
+        copy.speed = speed;
+        copy.toll = toll;
+        copy.linkType = linkType;
+        return copy;
+    }
+
+    // Node count from the header, or the largest node id seen when the header is missing
+    public int getNumberOfNodes() {
+        return Math.max(nodes, maxNode);
+    }
+
+    public int getNumberOfLinks() {
+        return links;
+    }
+
+    public int getNumberOfZones() {
+        return zones;
+    }
+
+    public int getFirstThruNode() {
+        return firstThruNode;
+    }
+
+    public int getFrom(int link) {
+        return from[link];
+    }
+
+    public int getTo(int link) {
+        return to[link];
+    }
+
+    public double getCapacity(int link) {
+        return capacity[link];
+    }
+
+    public float getLength(int link) {
+        return length[link];
+    }
+
+    public float getFreeFlowTime(int link) {
+        return freeFlowTime[link];
+    }
+}
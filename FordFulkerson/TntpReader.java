@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Single-pass TNTP parser working directly on bytes read through a FileChannel.
+// Metadata lines look like "<NUMBER OF NODES> 12982", lines starting with ~ are comments and
+// link lines are whitespace separated fields terminated by ';'.
+public class TntpReader {
+
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final double[] POW10 = new double[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private TntpNetwork network;
+    private int pos;          // parse position inside the current line
+    private int skippedLines;
+    private boolean headerOnly;
+    private boolean endOfMetadata;
+
+    public static TntpNetwork read(String fileName) throws IOException {
+        return new TntpReader().parse(fileName, false);
+    }
+
+    // Parse only the metadata block; link arrays stay empty
+    public static TntpNetwork readHeader(String fileName) throws IOException {
+        return new TntpReader().parse(fileName, true);
+    }
+
+    private TntpNetwork parse(String fileName, boolean headerOnly) throws IOException {
+        this.headerOnly = headerOnly;
+        network = new TntpNetwork(0);
+        try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+            byte[] buf = new byte[BUFFER_SIZE];
+            int filled = 0;
+            boolean eof = false;
+            while (!eof && !(headerOnly && endOfMetadata)) {
+                if (filled == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2); // line longer than the buffer
+                }
+                int n = channel.read(ByteBuffer.wrap(buf, filled, buf.length - filled));
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    filled += n;
+                }
+
+                int lineStart = 0;
+                for (int i = 0; i < filled; i++) {
+                    if (buf[i] == '\n') {
+                        parseLine(buf, lineStart, i);
+                        lineStart = i + 1;
+                        if (headerOnly && endOfMetadata) break;
+                    }
+                }
+                if (eof && lineStart < filled) {
+                    parseLine(buf, lineStart, filled);
+                    lineStart = filled;
+                }
+                System.arraycopy(buf, lineStart, buf, 0, filled - lineStart);
+                filled -= lineStart;
+            }
+        }
+        if (network.links != network.from.length) {
+            network.allocate(network.links);
+        }
+        if (skippedLines > 0) {
+            System.out.println("Skipped " + skippedLines + " invalid lines in " + fileName);
+        }
+        return network;
+    }
+
+    private void parseLine(byte[] b, int start, int end) {
+        pos = start;
+        skipSpaces(b, end);
+        if (pos >= end || b[pos] == '~') return;
+
+        if (b[pos] == '<') {
+            parseMetadata(b, end);
+            return;
+        }
+        if (headerOnly) return;
+
+        TntpNetwork net = network;
+        if (!isNumberStart(b[pos])) {
+            skippedLines++;
+            return;
+        }
+        int u = (int) parseNumber(b, end);
+        skipSpaces(b, end);
+        if (pos >= end || !isNumberStart(b[pos])) {
+            skippedLines++;
+            return;
+        }
+        int v = (int) parseNumber(b, end);
+        // Capacity is required: a line without a readable one is skipped, not a 0-capacity edge
+        skipSpaces(b, end);
+        if (pos >= end || !isNumberStart(b[pos])) {
+            skippedLines++;
+            return;
+        }
+        double capacity = parseNumber(b, end);
+        if (!atFieldEnd(b, end)) {
+            skippedLines++;
+            return;
+        }
+
+        int link = net.links;
+        if (link == net.from.length) {
+            net.allocate(link * 2);
+        }
+        net.from[link] = u;
+        net.to[link] = v;
+        net.capacity[link] = capacity;
+        net.length[link] = nextField(b, end);
+        net.freeFlowTime[link] = nextField(b, end);
+        net.b[link] = nextField(b, end);
+        net.power[link] = nextField(b, end);
+        net.speed[link] = nextField(b, end);
+        net.toll[link] = nextField(b, end);
+        net.linkType[link] = (int) nextField(b, end);
+        net.links++;
+        if (u > net.maxNode) net.maxNode = u;
+        if (v > net.maxNode) net.maxNode = v;
+    }
+
+    // Next optional numeric field of a link line, or 0 once the ';' terminator or line end is
+    // reached. An unreadable field also gives 0 and is stepped over, so later fields still line up.
+    private float nextField(byte[] b, int end) {
+        skipSpaces(b, end);
+        if (pos >= end || b[pos] == ';') return 0f;
+        if (isNumberStart(b[pos])) {
+            float value = (float) parseNumber(b, end);
+            if (atFieldEnd(b, end)) return value;
+        }
+        while (pos < end && !atFieldEnd(b, end)) pos++;
+        return 0f;
+    }
+
+    // True if the parse position is at the end of a field: whitespace, ';' or the line end
+    private boolean atFieldEnd(byte[] b, int end) {
+        return pos >= end || b[pos] == ' ' || b[pos] == '\t' || b[pos] == '\r' || b[pos] == ';';
+    }
+
+    private void parseMetadata(byte[] b, int end) {
+        int tagStart = pos + 1;
+        int tagEnd = tagStart;
+        while (tagEnd < end && b[tagEnd] != '>') tagEnd++;
+        String tag = new String(b, tagStart, tagEnd - tagStart, StandardCharsets.US_ASCII);
+        if (tag.equals("END OF METADATA")) {
+            endOfMetadata = true;
+            return;
+        }
+        pos = tagEnd + 1;
+        skipSpaces(b, end);
+        if (pos >= end || !isNumberStart(b[pos])) return;
+        int value = (int) parseNumber(b, end);
+        switch (tag) {
+            case "NUMBER OF ZONES":
+                network.zones = value;
+                break;
+            case "NUMBER OF NODES":
+                network.nodes = value;
+                break;
+            case "FIRST THRU NODE":
+                network.firstThruNode = value;
+                break;
+            case "NUMBER OF LINKS":
+                network.declaredLinks = value;
+                if (!headerOnly && value > network.from.length) {
+                    network.allocate(value);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void skipSpaces(byte[] b, int end) {
+        while (pos < end && (b[pos] == ' ' || b[pos] == '\t' || b[pos] == '\r')) pos++;
+    }
+
+    private static boolean isNumberStart(byte c) {
+        return (c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.';
+    }
+
+    // Decimal number with optional sign, fraction and exponent
+    private double parseNumber(byte[] b, int end) {
+        boolean negative = false;
+        if (b[pos] == '-' || b[pos] == '+') {
+            negative = b[pos] == '-';
+            pos++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        while (pos < end && b[pos] >= '0' && b[pos] <= '9') {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (b[pos] - '0');
+                digits++;
+            } else {
+                scale--;
+            }
+            pos++;
+        }
+        if (pos < end && b[pos] == '.') {
+            pos++;
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b[pos] - '0');
+                    digits++;
+                    scale++;
+                }
+                pos++;
+            }
+        }
+        int exponent = 0;
+        if (pos < end && (b[pos] == 'e' || b[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (b[pos] == '-' || b[pos] == '+')) {
+                negativeExponent = b[pos] == '-';
+                pos++;
+            }
+            while (pos < end && b[pos] >= '0' && b[pos] <= '9') {
+                exponent = exponent * 10 + (b[pos] - '0');
+                pos++;
+            }
+            if (negativeExponent) exponent = -exponent;
+        }
+        int power = exponent - scale;
+        double value = mantissa;
+        if (power > 0) {
+            value = power < POW10.length ? value * POW10[power] : value * Math.pow(10, power);
+        } else if (power < 0) {
+            value = -power < POW10.length ? value / POW10[-power] : value / Math.pow(10, -power);
+        }
+        return negative ? -value : value;
+    }
+}
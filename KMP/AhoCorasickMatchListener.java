@@ -0,0 +1,8 @@
+// Receives the lines matched by a multi-pattern search, in file order
+@FunctionalInterface
+public interface AhoCorasickMatchListener {
+
+    // patterns[0 .. patternCount - 1] are the indices of the patterns found in the line, in the
+    // order they were first seen; the array is reused for the next line. Return false to stop.
+    boolean onMatch(long lineNumber, long lineOffset, int lineLength, int[] patterns, int patternCount);
+}
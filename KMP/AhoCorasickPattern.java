@@ -0,0 +1,111 @@
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// A set of patterns compiled into one Aho-Corasick automaton over UTF-8 bytes, so all of them
+// are found in a single pass. Transitions are a complete DFA in one int array; the patterns
+// ending at a state are reached through outPattern/outLink.
+public class AhoCorasickPattern {
+
+    private final String[] patterns;
+    private final int states;
+    private final int[] next;       // next[state * 256 + b]
+    private final int[] outPattern; // pattern ending exactly at this state, or -1
+    private final int[] outLink;    // nearest suffix state with an output, or -1
+
+    public AhoCorasickPattern(String... patterns) {
+        if (patterns.length == 0) {
+            throw new IllegalArgumentException("At least one pattern is required");
+        }
+        this.patterns = patterns.clone();
+
+        byte[][] bytes = new byte[patterns.length][];
+        int maxStates = 1;
+        for (int i = 0; i < patterns.length; i++) {
+            if (patterns[i].isEmpty()) {
+                throw new IllegalArgumentException("Pattern must not be empty");
+            }
+            bytes[i] = patterns[i].getBytes(StandardCharsets.UTF_8);
+            maxStates += bytes[i].length;
+        }
+
+        // Trie
+        int[] next = new int[maxStates * 256];
+        Arrays.fill(next, -1);
+        int[] outPattern = new int[maxStates];
+        Arrays.fill(outPattern, -1);
+        int states = 1;
+        for (int i = 0; i < bytes.length; i++) {
+            int state = 0;
+            for (byte b : bytes[i]) {
+                int t = state * 256 + (b & 0xff);
+                if (next[t] == -1) {
+                    next[t] = states++;
+                }
+                state = next[t];
+            }
+            if (outPattern[state] == -1) {
+                outPattern[state] = i; // duplicates report the first occurrence
+            }
+        }
+
+        // BFS over the trie: fill failure transitions and dictionary links
+        int[] fail = new int[states];
+        int[] outLink = new int[states];
+        Arrays.fill(outLink, -1);
+        int[] queue = new int[states];
+        int qHead = 0, qTail = 0;
+        for (int b = 0; b < 256; b++) {
+            int child = next[b];
+            if (child == -1) {
+                next[b] = 0;
+            } else {
+                fail[child] = 0;
+                queue[qTail++] = child;
+            }
+        }
+        while (qHead < qTail) {
+            int state = queue[qHead++];
+            int f = fail[state];
+            outLink[state] = outPattern[f] != -1 ? f : outLink[f];
+            for (int b = 0; b < 256; b++) {
+                int t = state * 256 + b;
+                int child = next[t];
+                if (child == -1) {
+                    next[t] = next[f * 256 + b];
+                } else {
+                    fail[child] = next[f * 256 + b];
+                    queue[qTail++] = child;
+                }
+            }
+        }
+
+        this.states = states;
+        this.next = Arrays.copyOf(next, states * 256);
+        this.outPattern = Arrays.copyOf(outPattern, states);
+        this.outLink = outLink;
+    }
+
+    public int getPatternCount() {
+        return patterns.length;
+    }
+
+    public String getPattern(int index) {
+        return patterns[index];
+    }
+
+    public int getStateCount() {
+        return states;
+    }
+
+    int[] transitions() {
+        return next;
+    }
+
+    int[] outPatterns() {
+        return outPattern;
+    }
+
+    int[] outLinks() {
+        return outLink;
+    }
+}
@@ -0,0 +1,611 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Per-column inverted index of a CSV file with a header line. Each column keeps its distinct
+// values, the data lines holding each value, and a trigram index over the values, so a
+// column-scoped search only runs KMP over the (few) candidate values instead of the whole
+// file. The index is written next to the file as <file>.colindex and rebuilt when the file's
+// size or modification time changes. Lines are numbered like KMPFileSearcher with skipHeader:
+// the header is line 0.
+public class CsvColumnIndex {
+
+    private static final int MAGIC = 0x4b434958; // "KCIX"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * 2 + 8 * 2 + 4 * 2;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final long MAP_CHUNK = 64L << 20;
+    private static final int SLICE = 64 << 10;
+
+    private final long sourceSize;
+    private final long sourceModified;
+    private final String[] columns;
+    private final int lines;          // data lines, header excluded
+    private final long[] lineOffset;  // byte offset of data line i (line number i + 1)
+    private final int[] lineLength;   // without the terminator
+    private final Column[] index;
+
+    // Distinct values of one column as a flat byte array, the data lines of each value,
+    // and the values containing each trigram; all three in CSR form
+    private static final class Column {
+        int[] valueStart;
+        byte[] valueBytes;
+        int[] postingStart;
+        int[] postings;
+        int[] trigramKey;
+        int[] trigramStart;
+        int[] trigramValues;
+
+        int values() {
+            return valueStart.length - 1;
+        }
+
+        // The CSR arrays line up and every value, line and trigram entry is in range
+        boolean isValid(int lines) {
+            if (valueStart.length == 0 || postingStart.length != valueStart.length
+                    || trigramStart.length != trigramKey.length + 1) {
+                return false;
+            }
+            if (!isOffsets(valueStart, valueBytes.length) || !isOffsets(postingStart, postings.length)
+                    || !isOffsets(trigramStart, trigramValues.length)) {
+                return false;
+            }
+            for (int line : postings) {
+                if (line < 0 || line >= lines) return false;
+            }
+            for (int v : trigramValues) {
+                if (v < 0 || v >= values()) return false;
+            }
+            for (int t = 1; t < trigramKey.length; t++) {
+                if (trigramKey[t - 1] >= trigramKey[t]) return false;
+            }
+            return true;
+        }
+
+        // Starts at 0, never decreases and ends at the length of the array it points into
+        private static boolean isOffsets(int[] start, int length) {
+            if (start[0] != 0 || start[start.length - 1] != length) return false;
+            for (int i = 1; i < start.length; i++) {
+                if (start[i - 1] > start[i]) return false;
+            }
+            return true;
+        }
+    }
+
+    private CsvColumnIndex(long sourceSize, long sourceModified, String[] columns, int lines,
+                           long[] lineOffset, int[] lineLength, Column[] index) {
+        this.sourceSize = sourceSize;
+        this.sourceModified = sourceModified;
+        this.columns = columns;
+        this.lines = lines;
+        this.lineOffset = lineOffset;
+        this.lineLength = lineLength;
+        this.index = index;
+    }
+
+    public static String indexFileFor(Path file) {
+        return file.toString() + ".colindex";
+    }
+
+    // Load the index written for the current version of the file, or build and save a new one
+    public static CsvColumnIndex open(Path file) throws IOException {
+        Path indexFile = Paths.get(indexFileFor(file));
+        CsvColumnIndex index = load(indexFile, file);
+        if (index != null) return index;
+        index = build(file);
+        try {
+            index.write(indexFile);
+        } catch (IOException e) {
+            System.err.println("Could not write column index: " + e.getMessage());
+        }
+        return index;
+    }
+
+    // True while the file still has the size and modification time the index was built from
+    public boolean isCurrent(Path file) throws IOException {
+        return Files.size(file) == sourceSize && Files.getLastModifiedTime(file).toMillis() == sourceModified;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String getColumnName(int column) {
+        return columns[column];
+    }
+
+    // Column with the given header name (case and surrounding blanks ignored), or -1
+    public int columnIndex(String name) {
+        for (int c = 0; c < columns.length; c++) {
+            if (columns[c].trim().equalsIgnoreCase(name.trim())) return c;
+        }
+        return -1;
+    }
+
+    public int getLineCount() {
+        return lines;
+    }
+
+    public int getDistinctValueCount(int column) {
+        return index[column].values();
+    }
+
+    // Report every data line whose value in the given column contains the pattern, in line order.
+    // matchColumn is the byte offset of the match within the line. Returns the number of matching lines.
+    public long search(Path file, int column, KMPPattern pattern, KMPMatchListener listener) throws IOException {
+        Column col = index[column];
+        long[] hits = new long[(lines + 63) >>> 6];
+        for (int v : candidateValues(col, pattern)) {
+            if (pattern.indexIn(col.valueBytes, col.valueStart[v], col.valueStart[v + 1]) < 0) continue;
+            for (int p = col.postingStart[v]; p < col.postingStart[v + 1]; p++) {
+                int line = col.postings[p];
+                hits[line >>> 6] |= 1L << line;
+            }
+        }
+
+        long matches = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer window = null;
+            long windowStart = 0;
+            byte[] buf = new byte[256];
+            for (int w = 0; w < hits.length; w++) {
+                for (long word = hits[w]; word != 0; word &= word - 1) {
+                    int line = (w << 6) + Long.numberOfTrailingZeros(word);
+                    long offset = lineOffset[line];
+                    int length = lineLength[line];
+                    // Lines come in file order, so the mapped window only moves forward
+                    if (window == null || offset + length > windowStart + window.capacity()) {
+                        windowStart = offset;
+                        window = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                                Math.min(Math.max(MAP_CHUNK, length), channel.size() - offset));
+                    }
+                    if (buf.length < length) buf = new byte[length];
+                    window.get((int) (offset - windowStart), buf, 0, length);
+                    matches++;
+                    if (!listener.onMatch(line + 1, offset, length, matchColumn(buf, length, column, pattern))) {
+                        return matches;
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    // Values that can contain the pattern: those holding its rarest trigram, or every value
+    // for patterns shorter than three bytes
+    private static int[] candidateValues(Column col, KMPPattern pattern) {
+        byte[] p = pattern.getText().getBytes(StandardCharsets.UTF_8);
+        if (p.length < 3) {
+            int[] all = new int[col.values()];
+            for (int v = 0; v < all.length; v++) all[v] = v;
+            return all;
+        }
+        int best = -1;
+        for (int i = 0; i + 3 <= p.length; i++) {
+            int t = Arrays.binarySearch(col.trigramKey, trigram(p, i));
+            if (t < 0) return new int[0];
+            if (best == -1 || size(col.trigramStart, t) < size(col.trigramStart, best)) best = t;
+        }
+        return Arrays.copyOfRange(col.trigramValues, col.trigramStart[best], col.trigramStart[best + 1]);
+    }
+
+    private static int size(int[] start, int i) {
+        return start[i + 1] - start[i];
+    }
+
+    private static int trigram(byte[] b, int i) {
+        return (b[i] & 0xff) << 16 | (b[i + 1] & 0xff) << 8 | (b[i + 2] & 0xff);
+    }
+
+    // Offset of the match inside the raw line, searched within the field of the column
+    private static int matchColumn(byte[] line, int length, int column, KMPPattern pattern) {
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0, c = 0; i <= length; i++) {
+            if (i == length || (line[i] == ',' && !quoted)) {
+                if (c == column) {
+                    int at = pattern.indexIn(line, start, i);
+                    return at >= 0 ? at : start;
+                }
+                c++;
+                start = i + 1;
+            } else if (line[i] == '"') {
+                quoted = !quoted;
+            }
+        }
+        return 0;
+    }
+
+    // Column names from the first line of a CSV file
+    public static String[] readHeader(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(4096);
+            byte[] line = new byte[0];
+            int length = 0;
+            long position = 0;
+            while (true) {
+                buf.clear();
+                int n = channel.read(buf, position);
+                if (n <= 0) break;
+                int end = 0;
+                while (end < n && buf.get(end) != '\n') end++;
+                line = Arrays.copyOf(line, length + end);
+                buf.get(0, line, length, end);
+                length += end;
+                if (end < n) break;
+                position += n;
+            }
+            return headerNames(line, length);
+        }
+    }
+
+    private static String[] headerNames(byte[] line, int length) {
+        if (length > 0 && line[length - 1] == '\r') length--;
+        int start = length >= 3 && (line[0] & 0xff) == 0xef && (line[1] & 0xff) == 0xbb && (line[2] & 0xff) == 0xbf
+                ? 3 : 0; // UTF-8 byte order mark
+        FieldParser fields = new FieldParser();
+        fields.parse(line, start, length);
+        String[] names = new String[fields.count];
+        for (int c = 0; c < fields.count; c++) {
+            names[c] = new String(fields.value, fields.start[c], fields.end[c] - fields.start[c], StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    // Splits one line into fields; quotes are removed and "" inside quotes becomes "
+    private static final class FieldParser {
+        byte[] value = new byte[256];
+        int[] start = new int[16];
+        int[] end = new int[16];
+        int count;
+
+        void parse(byte[] line, int from, int to) {
+            if (value.length < to - from) value = new byte[to - from];
+            count = 0;
+            int n = 0;
+            boolean quoted = false;
+            int fieldStart = 0;
+            for (int i = from; i < to; i++) {
+                byte b = line[i];
+                if (b == '"') {
+                    if (quoted && i + 1 < to && line[i + 1] == '"') {
+                        value[n++] = '"';
+                        i++;
+                    } else {
+                        quoted = !quoted;
+                    }
+                } else if (b == ',' && !quoted) {
+                    addField(fieldStart, n);
+                    fieldStart = n;
+                } else {
+                    value[n++] = b;
+                }
+            }
+            addField(fieldStart, n);
+        }
+
+        private void addField(int from, int to) {
+            if (count == start.length) {
+                start = Arrays.copyOf(start, count * 2);
+                end = Arrays.copyOf(end, count * 2);
+            }
+            start[count] = from;
+            end[count] = to;
+            count++;
+        }
+    }
+
+    // Distinct values and line-to-value assignment of one column while building
+    private static final class ColumnBuilder {
+        final Map<String, Integer> ids = new HashMap<>();
+        byte[] valueBytes = new byte[1024];
+        int[] valueStart = new int[65];
+        int values;
+        int[] valueOfLine = new int[1024];
+
+        ColumnBuilder() {
+            Arrays.fill(valueOfLine, -1); // lines too short to have this column
+        }
+
+        void add(int line, byte[] b, int from, int to) {
+            if (line >= valueOfLine.length) {
+                int old = valueOfLine.length;
+                valueOfLine = Arrays.copyOf(valueOfLine, Math.max(old * 2, line + 1));
+                Arrays.fill(valueOfLine, old, valueOfLine.length, -1);
+            }
+            // ISO-8859-1 maps every byte to one char, so the key is an exact copy of the bytes
+            String key = new String(b, from, to - from, StandardCharsets.ISO_8859_1);
+            Integer id = ids.get(key);
+            if (id == null) {
+                id = values;
+                ids.put(key, id);
+                int length = to - from;
+                if (valueStart[values] + length > valueBytes.length) {
+                    valueBytes = Arrays.copyOf(valueBytes, Math.max(valueBytes.length * 2, valueStart[values] + length));
+                }
+                System.arraycopy(b, from, valueBytes, valueStart[values], length);
+                if (values + 2 > valueStart.length) valueStart = Arrays.copyOf(valueStart, valueStart.length * 2);
+                valueStart[values + 1] = valueStart[values] + length;
+                values++;
+            }
+            valueOfLine[line] = id;
+        }
+
+        Column finish(int lines) {
+            Column col = new Column();
+            col.valueStart = Arrays.copyOf(valueStart, values + 1);
+            col.valueBytes = Arrays.copyOf(valueBytes, valueStart[values]);
+
+            // Postings by counting sort of the lines over their value
+            col.postingStart = new int[values + 1];
+            int present = 0;
+            for (int line = 0; line < Math.min(lines, valueOfLine.length); line++) {
+                if (valueOfLine[line] >= 0) {
+                    col.postingStart[valueOfLine[line] + 1]++;
+                    present++;
+                }
+            }
+            for (int v = 0; v < values; v++) col.postingStart[v + 1] += col.postingStart[v];
+            col.postings = new int[present];
+            int[] next = Arrays.copyOf(col.postingStart, values);
+            for (int line = 0; line < Math.min(lines, valueOfLine.length); line++) {
+                int v = valueOfLine[line];
+                if (v >= 0) col.postings[next[v]++] = line;
+            }
+
+            // Trigram index: sort (trigram, value) pairs and drop duplicates
+            int pairs = 0;
+            for (int v = 0; v < values; v++) pairs += Math.max(0, size(col.valueStart, v) - 2);
+            long[] keys = new long[pairs];
+            int k = 0;
+            for (int v = 0; v < values; v++) {
+                for (int i = col.valueStart[v]; i + 3 <= col.valueStart[v + 1]; i++) {
+                    keys[k++] = (long) trigram(col.valueBytes, i) << 32 | v;
+                }
+            }
+            Arrays.sort(keys);
+            int[] trigramKey = new int[16];
+            int[] trigramStart = new int[17];
+            int[] trigramValues = new int[pairs];
+            int trigrams = 0, count = 0;
+            for (int i = 0; i < pairs; i++) {
+                if (i > 0 && keys[i] == keys[i - 1]) continue;
+                int t = (int) (keys[i] >>> 32);
+                if (trigrams == 0 || trigramKey[trigrams - 1] != t) {
+                    if (trigrams == trigramKey.length) {
+                        trigramKey = Arrays.copyOf(trigramKey, trigrams * 2);
+                        trigramStart = Arrays.copyOf(trigramStart, trigrams * 2 + 1);
+                    }
+                    trigramKey[trigrams] = t;
+                    trigramStart[trigrams] = count;
+                    trigrams++;
+                }
+                trigramValues[count++] = (int) keys[i];
+            }
+            trigramStart[trigrams] = count;
+            col.trigramKey = Arrays.copyOf(trigramKey, trigrams);
+            col.trigramStart = Arrays.copyOf(trigramStart, trigrams + 1);
+            col.trigramValues = Arrays.copyOf(trigramValues, count);
+            return col;
+        }
+    }
+
+    // One pass over the file: record line offsets and feed every field to its column
+    public static CsvColumnIndex build(Path file) throws IOException {
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            IndexBuilder builder = new IndexBuilder();
+            byte[] slice = new byte[SLICE];
+            for (long chunkStart = 0; chunkStart < size; chunkStart += MAP_CHUNK) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                        Math.min(MAP_CHUNK, size - chunkStart));
+                while (chunk.hasRemaining()) {
+                    long base = chunkStart + chunk.position();
+                    int n = Math.min(slice.length, chunk.remaining());
+                    chunk.get(slice, 0, n);
+                    for (int i = 0; i < n; i++) {
+                        if (slice[i] == '\n') {
+                            builder.endLine(base + i + 1);
+                        } else {
+                            builder.append(slice[i]);
+                        }
+                    }
+                }
+            }
+            if (builder.length > 0) builder.endLine(size); // last line without a terminator
+            return builder.finish(size, modified);
+        }
+    }
+
+    // Collects the bytes of the current line and dispatches finished lines
+    private static final class IndexBuilder {
+        byte[] line = new byte[1024];
+        int length;
+        long lineStart;
+        String[] columns;
+        ColumnBuilder[] builders = new ColumnBuilder[0];
+        final FieldParser fields = new FieldParser();
+        long[] lineOffset = new long[1024];
+        int[] lineLength = new int[1024];
+        int lines;
+
+        void append(byte b) {
+            if (length == line.length) line = Arrays.copyOf(line, length * 2);
+            line[length++] = b;
+        }
+
+        void endLine(long nextLineStart) {
+            int content = length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            if (columns == null) {
+                columns = headerNames(line, content);
+                builders = new ColumnBuilder[columns.length];
+                for (int c = 0; c < columns.length; c++) builders[c] = new ColumnBuilder();
+            } else {
+                if (lines == lineOffset.length) {
+                    lineOffset = Arrays.copyOf(lineOffset, lines * 2);
+                    lineLength = Arrays.copyOf(lineLength, lines * 2);
+                }
+                lineOffset[lines] = lineStart;
+                lineLength[lines] = content;
+                fields.parse(line, 0, content);
+                for (int c = 0; c < Math.min(fields.count, builders.length); c++) {
+                    builders[c].add(lines, fields.value, fields.start[c], fields.end[c]);
+                }
+                lines++;
+            }
+            lineStart = nextLineStart;
+            length = 0;
+        }
+
+        CsvColumnIndex finish(long size, long modified) {
+            Column[] index = new Column[builders.length];
+            for (int c = 0; c < builders.length; c++) {
+                index[c] = builders[c].finish(lines);
+            }
+            return new CsvColumnIndex(size, modified, columns == null ? new String[0] : columns, lines,
+                    Arrays.copyOf(lineOffset, lines), Arrays.copyOf(lineLength, lines), index);
+        }
+    }
+
+    // The saved index if it was built from the current version of the file, else null. A
+    // truncated or damaged index also gives null, so the caller rebuilds it.
+    public static CsvColumnIndex load(Path indexFile, Path file) throws IOException {
+        if (!Files.isRegularFile(indexFile) || Files.size(indexFile) < HEADER_BYTES) return null;
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) return null;
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long sourceSize = buf.getLong();
+            long sourceModified = buf.getLong();
+            if (sourceSize != Files.size(file) || sourceModified != Files.getLastModifiedTime(file).toMillis()) {
+                return null;
+            }
+            return decode(buf, sourceSize, sourceModified);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Everything after the source tag; null if a count or offset does not fit the file
+    private static CsvColumnIndex decode(ByteBuffer buf, long sourceSize, long sourceModified) {
+        int lines = buf.getInt();
+        int columnCount = buf.getInt();
+        if (columnCount < 0 || columnCount > buf.remaining() / 4) return null;
+        String[] columns = new String[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            columns[c] = new String(readBytes(buf, buf.getInt()), StandardCharsets.UTF_8);
+        }
+        if (lines < 0 || lines > buf.remaining() / 12) return null;
+        long[] lineOffset = new long[lines];
+        buf.asLongBuffer().get(lineOffset);
+        buf.position(buf.position() + 8 * lines);
+        int[] lineLength = readInts(buf, lines);
+        for (int i = 0; i < lines; i++) {
+            if (lineOffset[i] < 0 || lineLength[i] < 0 || lineOffset[i] + lineLength[i] > sourceSize) return null;
+        }
+
+        Column[] index = new Column[columnCount];
+        for (int c = 0; c < columnCount; c++) {
+            Column col = new Column();
+            col.valueStart = readInts(buf, buf.getInt());
+            col.valueBytes = readBytes(buf, buf.getInt());
+            col.postingStart = readInts(buf, buf.getInt());
+            col.postings = readInts(buf, buf.getInt());
+            col.trigramKey = readInts(buf, buf.getInt());
+            col.trigramStart = readInts(buf, buf.getInt());
+            col.trigramValues = readInts(buf, buf.getInt());
+            if (!col.isValid(lines)) return null;
+            index[c] = col;
+        }
+        if (buf.hasRemaining()) return null;
+        return new CsvColumnIndex(sourceSize, sourceModified, columns, lines, lineOffset, lineLength, index);
+    }
+
+    public void write(Path indexFile) throws IOException {
+        // Write next to the target and rename, so an interrupted run never leaves a torn index
+        Path temp = Paths.get(indexFile + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(sourceSize).putLong(sourceModified);
+            buf.putInt(lines).putInt(columns.length);
+            for (String name : columns) {
+                writeArray(channel, buf, name.getBytes(StandardCharsets.UTF_8));
+            }
+            for (int i = 0; i < lines; i++) {
+                if (buf.remaining() < 8) flush(channel, buf);
+                buf.putLong(lineOffset[i]);
+            }
+            writeInts(channel, buf, lineLength);
+            for (Column col : index) {
+                writeArray(channel, buf, col.valueStart);
+                writeArray(channel, buf, col.valueBytes);
+                writeArray(channel, buf, col.postingStart);
+                writeArray(channel, buf, col.postings);
+                writeArray(channel, buf, col.trigramKey);
+                writeArray(channel, buf, col.trigramStart);
+                writeArray(channel, buf, col.trigramValues);
+            }
+            flush(channel, buf);
+        }
+        Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Counts are checked against what is left, so a damaged count cannot allocate past the file
+    private static int[] readInts(ByteBuffer buf, int count) {
+        if (count < 0 || count > buf.remaining() / 4) throw new IllegalStateException("Truncated index");
+        int[] values = new int[count];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + 4 * count);
+        return values;
+    }
+
+    private static byte[] readBytes(ByteBuffer buf, int count) {
+        if (count < 0 || count > buf.remaining()) throw new IllegalStateException("Truncated index");
+        byte[] values = new byte[count];
+        buf.get(values);
+        return values;
+    }
+
+    // Length-prefixed arrays
+    private static void writeArray(FileChannel channel, ByteBuffer buf, int[] values) throws IOException {
+        if (buf.remaining() < 4) flush(channel, buf);
+        buf.putInt(values.length);
+        writeInts(channel, buf, values);
+    }
+
+    private static void writeArray(FileChannel channel, ByteBuffer buf, byte[] values) throws IOException {
+        if (buf.remaining() < 4) flush(channel, buf);
+        buf.putInt(values.length);
+        for (int i = 0; i < values.length; ) {
+            if (!buf.hasRemaining()) flush(channel, buf);
+            int n = Math.min(buf.remaining(), values.length - i);
+            buf.put(values, i, n);
+            i += n;
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buf, int[] values) throws IOException {
+        for (int value : values) {
+            if (buf.remaining() < 4) flush(channel, buf);
+            buf.putInt(value);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+}
@@ -1,20 +1,39 @@
-
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 public class KMPFileHandlingGUI extends JFrame {
 
+    private static final String ALL_COLUMNS = "All columns";
+    private static final int PUBLISH_EVERY = 1024;
+
     private JTextField patternField;
-    private JTextArea resultArea;
+    private JCheckBox multiPatternBox;
+    private JCheckBox parallelBox;
+    private JComboBox<String> columnBox;
+    private volatile CsvColumnIndex columnIndex;
+    private JLabel statusLabel;
+    private MatchTableModel results;
+    private SearchWorker currentSearch;
+    private String lastQuery;
     private File selectedFile;
 
     public KMPFileHandlingGUI() {
         setTitle("KMP Pattern Search in CSV File");
-        setSize(600, 400);
+        setSize(1100, 400);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
         setLayout(new BorderLayout());
@@ -31,21 +50,42 @@ public class KMPFileHandlingGUI extends JFrame {
         topPanel.add(new JLabel("Enter Pattern:"));
         topPanel.add(patternField);
 
+        columnBox = new JComboBox<>(new String[] {ALL_COLUMNS});
+        columnBox.setToolTipText("Restrict the search to one column; answered from a saved column index");
+        topPanel.add(new JLabel("In:"));
+        topPanel.add(columnBox);
+
+        multiPatternBox = new JCheckBox("Multiple patterns (separate with |)");
+        topPanel.add(multiPatternBox);
+
+        parallelBox = new JCheckBox("Parallel");
+        parallelBox.setToolTipText("Search line-aligned chunks of the file on all cores");
+        topPanel.add(parallelBox);
+
         JButton searchButton = new JButton("Search");
         searchButton.addActionListener(new SearchButtonListener());
         topPanel.add(searchButton);
 
         add(topPanel, BorderLayout.NORTH);
 
-        // Result area
-        resultArea = new JTextArea();
-        resultArea.setEditable(false);
-        add(new JScrollPane(resultArea), BorderLayout.CENTER);
+        // Result table: only the visible rows are rendered, and their text is read from the file on demand
+        results = new MatchTableModel();
+        JTable table = new JTable(results);
+        table.setFillsViewportHeight(true);
+        table.setAutoResizeMode(JTable.AUTO_RESIZE_LAST_COLUMN);
+        table.getColumnModel().getColumn(0).setPreferredWidth(70);
+        table.getColumnModel().getColumn(1).setPreferredWidth(160);
+        table.getColumnModel().getColumn(2).setPreferredWidth(850);
+        add(new JScrollPane(table), BorderLayout.CENTER);
 
-        // Save results button
+        // Status line and save results button
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        statusLabel = new JLabel("Select a CSV file to search.");
+        bottomPanel.add(statusLabel, BorderLayout.CENTER);
         JButton saveButton = new JButton("Save Results");
         saveButton.addActionListener(new SaveButtonListener());
-        add(saveButton, BorderLayout.SOUTH);
+        bottomPanel.add(saveButton, BorderLayout.EAST);
+        add(bottomPanel, BorderLayout.SOUTH);
     }
 
     // KMP Search function
@@ -100,7 +140,17 @@ public class KMPFileHandlingGUI extends JFrame {
             int returnValue = fileChooser.showOpenDialog(null);
             if (returnValue == JFileChooser.APPROVE_OPTION) {
                 selectedFile = fileChooser.getSelectedFile();
-                resultArea.setText("Selected file: " + selectedFile.getAbsolutePath() + "\n");
+                columnIndex = null;
+                statusLabel.setText("Selected file: " + selectedFile.getAbsolutePath());
+                columnBox.removeAllItems();
+                columnBox.addItem(ALL_COLUMNS);
+                try {
+                    for (String name : CsvColumnIndex.readHeader(selectedFile.toPath())) {
+                        columnBox.addItem(name);
+                    }
+                } catch (IOException ex) {
+                    statusLabel.setText("Error reading file: " + ex.getMessage());
+                }
             }
         }
     }
@@ -118,7 +168,33 @@ public class KMPFileHandlingGUI extends JFrame {
                 JOptionPane.showMessageDialog(null, "Please enter a search pattern.");
                 return;
             }
-            resultArea.append("Searching for pattern: " + pattern + "\n\n");
+            int column = columnBox.getSelectedIndex() - 1;
+            if (multiPatternBox.isSelected()) {
+                String[] patterns = Arrays.stream(pattern.split("\\|"))
+                        .filter(p -> !p.isEmpty())
+                        .distinct()
+                        .toArray(String[]::new);
+                if (patterns.length > 1 && column >= 0) {
+                    JOptionPane.showMessageDialog(null, "A column search takes a single pattern.");
+                    return;
+                }
+                if (patterns.length > 1) {
+                    lastQuery = "Searching for patterns: " + String.join(", ", patterns);
+                    performMultiSearch(patterns);
+                    return;
+                }
+                if (patterns.length == 0) {
+                    JOptionPane.showMessageDialog(null, "Please enter a search pattern.");
+                    return;
+                }
+                pattern = patterns[0];
+            }
+            if (column >= 0) {
+                lastQuery = "Searching for pattern: " + pattern + " in column " + columnBox.getSelectedItem();
+                performColumnSearch(pattern, column);
+                return;
+            }
+            lastQuery = "Searching for pattern: " + pattern;
             performSearch(pattern);
         }
     }
@@ -127,6 +203,10 @@ public class KMPFileHandlingGUI extends JFrame {
     private class SaveButtonListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
+            if (results.getMatches() == null) {
+                JOptionPane.showMessageDialog(null, "There are no results to save.");
+                return;
+            }
             JFileChooser fileChooser = new JFileChooser();
             fileChooser.setDialogTitle("Save Results as CSV");
             int userSelection = fileChooser.showSaveDialog(null);
@@ -137,40 +217,235 @@ public class KMPFileHandlingGUI extends JFrame {
         }
     }
 
-    // Perform the KMP search and display results
+    // Perform the KMP search on a background thread and stream results into the table
     private void performSearch(String pattern) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(selectedFile))) {
-            String line;
-            int lineNum = 0;
-            boolean found = false;
-
-            reader.readLine();  // Skip header line
-            while ((line = reader.readLine()) != null) {
-                lineNum++;
-                if (KMP(line, pattern)) {
-                    resultArea.append("Pattern found in line " + lineNum + ": " + line + "\n");
-                    found = true;
-                }
-            }
+        KMPPattern compiled = new KMPPattern(pattern);
+        boolean parallel = parallelBox.isSelected();
+        runSearch((file, worker) -> {
+            KMPMatchListener publisher = (lineNumber, lineOffset, lineLength, matchColumn) ->
+                    worker.addMatch(lineNumber, lineOffset, lineLength, "Pattern");
+            return parallel
+                    ? KMPFileSearcher.searchParallel(file, compiled, true, publisher)
+                    : KMPFileSearcher.search(file, compiled, true, publisher);
+        });
+    }
+
+    // Find all patterns in one Aho-Corasick pass, listing which ones occur on each line
+    private void performMultiSearch(String[] patterns) {
+        AhoCorasickPattern compiled = new AhoCorasickPattern(patterns);
+        boolean parallel = parallelBox.isSelected();
+        runSearch((file, worker) -> {
+            AhoCorasickMatchListener publisher = (lineNumber, lineOffset, lineLength, matched, count) ->
+                    worker.addMatch(lineNumber, lineOffset, lineLength, KMPFileSearcher.describe(compiled, matched, count));
+            return parallel
+                    ? KMPFileSearcher.searchParallel(file, compiled, true, publisher)
+                    : KMPFileSearcher.search(file, compiled, true, publisher);
+        });
+    }
 
-            if (!found) {
-                resultArea.append("Pattern not found in any record.\n");
+    // Search one column through the column index, loading or building it on first use
+    private void performColumnSearch(String pattern, int column) {
+        KMPPattern compiled = new KMPPattern(pattern);
+        runSearch((file, worker) -> {
+            CsvColumnIndex index = columnIndex;
+            if (index == null || !index.isCurrent(file)) {
+                index = CsvColumnIndex.open(file);
+                columnIndex = index;
             }
+            if (column >= index.getColumnCount()) return 0;
+            return index.search(file, column, compiled, (lineNumber, lineOffset, lineLength, matchColumn) ->
+                    worker.addMatch(lineNumber, lineOffset, lineLength, "Pattern"));
+        });
+    }
+
+    private interface SearchTask {
+        long run(Path file, SearchWorker worker) throws IOException;
+    }
+
+    // Start a search into a fresh match list, cancelling one that is still running
+    private void runSearch(SearchTask task) {
+        if (currentSearch != null) {
+            currentSearch.cancel(true);
+        }
+        Path file = selectedFile.toPath();
+        KMPMatchList matches = new KMPMatchList();
+        try {
+            results.show(file, matches);
         } catch (IOException ex) {
-            resultArea.append("Error reading file: " + ex.getMessage() + "\n");
+            statusLabel.setText("Error reading file: " + ex.getMessage());
+            return;
         }
+        statusLabel.setText(lastQuery + " ...");
+        currentSearch = new SearchWorker(file, matches, task);
+        currentSearch.execute();
     }
 
-    // Save results from the text area to a CSV file
-    private void saveResultsToFile(File file) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
-            writer.write(resultArea.getText());
-            JOptionPane.showMessageDialog(null, "Results saved to " + file.getAbsolutePath());
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(null, "Error saving file: " + ex.getMessage());
+    // Runs the search off the Swing thread; publishes the growing match count so the table
+    // can add rows in batches while the search is still going
+    private class SearchWorker extends SwingWorker<Long, Integer> {
+        private final Path file;
+        private final KMPMatchList matches;
+        private final SearchTask task;
+
+        SearchWorker(Path file, KMPMatchList matches, SearchTask task) {
+            this.file = file;
+            this.matches = matches;
+            this.task = task;
+        }
+
+        @Override
+        protected Long doInBackground() throws IOException {
+            return task.run(file, this);
+        }
+
+        boolean addMatch(long lineNumber, long lineOffset, int lineLength, String label) {
+            int size = matches.add(lineNumber, lineOffset, lineLength, label);
+            if (size % PUBLISH_EVERY == 0) {
+                publish(size);
+            }
+            return !isCancelled();
+        }
+
+        @Override
+        protected void process(List<Integer> sizes) {
+            if (results.getMatches() == matches) {
+                results.setVisibleRows(sizes.get(sizes.size() - 1));
+                statusLabel.setText(lastQuery + " ... " + sizes.get(sizes.size() - 1) + " matching lines so far");
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || results.getMatches() != matches) return;
+            results.setVisibleRows(matches.size());
+            try {
+                long found = get();
+                statusLabel.setText(found == 0 ? lastQuery + ": Pattern not found in any record."
+                        : lastQuery + ": " + found + " matching lines");
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException ex) {
+                statusLabel.setText("Error reading file: " + ex.getCause().getMessage());
+            }
         }
     }
 
+    // Table over a KMPMatchList. Rows become visible as the search publishes them; the text
+    // of a record is read from the searched file when its row is painted, and the most
+    // recently shown lines are cached.
+    private static class MatchTableModel extends AbstractTableModel {
+        private static final long serialVersionUID = 1L;
+        private static final String[] COLUMNS = {"Line", "Found", "Record"};
+        private static final int CACHED_LINES = 2048;
+
+        private KMPMatchList matches;
+        private Path file;
+        private FileChannel source;
+        private int visibleRows;
+        private final Map<Integer, String> lineCache = new LinkedHashMap<Integer, String>(CACHED_LINES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > CACHED_LINES;
+            }
+        };
+
+        void show(Path file, KMPMatchList matches) throws IOException {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            if (source != null) {
+                source.close();
+            }
+            this.source = channel;
+            this.file = file;
+            this.matches = matches;
+            this.visibleRows = 0;
+            lineCache.clear();
+            fireTableDataChanged();
+        }
+
+        void setVisibleRows(int rows) {
+            if (rows > visibleRows) {
+                int first = visibleRows;
+                visibleRows = rows;
+                fireTableRowsInserted(first, rows - 1);
+            }
+        }
+
+        KMPMatchList getMatches() {
+            return matches;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        @Override
+        public int getRowCount() {
+            return visibleRows;
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            switch (column) {
+                case 0:
+                    return matches.getLineNumber(row);
+                case 1:
+                    return matches.getLabel(row);
+                default:
+                    return lineCache.computeIfAbsent(row, this::readRecord);
+            }
+        }
+
+        private String readRecord(int row) {
+            try {
+                return KMPFileSearcher.readLine(source, matches.getLineOffset(row), matches.getLineLength(row));
+            } catch (IOException ex) {
+                return "Error reading file: " + ex.getMessage();
+            }
+        }
+    }
+
+    // Save the results to a file, copying each matching line straight from the searched file
+    private void saveResultsToFile(File file) {
+        KMPMatchList matches = results.getMatches();
+        Path source = results.getFile();
+        String query = lastQuery;
+        statusLabel.setText("Saving " + matches.size() + " results to " + file.getAbsolutePath() + " ...");
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (FileChannel lines = FileChannel.open(source, StandardOpenOption.READ);
+                     OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+                    out.write((query + System.lineSeparator() + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                    matches.writeTo(lines, out);
+                }
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    statusLabel.setText("Results saved to " + file.getAbsolutePath());
+                    JOptionPane.showMessageDialog(null, "Results saved to " + file.getAbsolutePath());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    JOptionPane.showMessageDialog(null, "Error saving file: " + ex.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
             KMPFileHandlingGUI frame = new KMPFileHandlingGUI();
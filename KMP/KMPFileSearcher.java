@@ -0,0 +1,479 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Headless line search: streams a file through memory-mapped chunks and runs a compiled
+// KMPPattern (one pattern) or AhoCorasickPattern (many patterns) over the bytes, reporting
+// each matching line once. Used by KMPFileHandlingGUI and runnable on its own:
+// java KMPFileSearcher <file> <pattern> [<pattern> ...]
+public class KMPFileSearcher {
+
+    private static final long MAP_CHUNK = 64L << 20;
+    private static final int SLICE = 64 << 10;
+
+    // Search every line of the file; with skipHeader the first line is line 0 and is not
+    // searched, matching the numbering of KMPFileHandlingGUI. Returns the number of matching lines.
+    public static long search(Path file, KMPPattern pattern, boolean skipHeader, KMPMatchListener listener)
+            throws IOException {
+        return run(file, new KMPScanner(pattern, firstLineNumber(skipHeader), skipHeader, listener));
+    }
+
+    // Multi-pattern search: one pass finds every pattern, and each matching line reports which
+    // patterns it contains
+    public static long search(Path file, AhoCorasickPattern patterns, boolean skipHeader,
+                              AhoCorasickMatchListener listener) throws IOException {
+        return run(file, new AhoCorasickScanner(patterns, firstLineNumber(skipHeader), skipHeader, listener));
+    }
+
+    // Parallel variants: the file is split into line-aligned chunks that are scanned on the
+    // fork-join pool. Since no line spans two chunks, no match can straddle a boundary. Each
+    // chunk buffers its matches with chunk-local line numbers; the calling thread joins the
+    // chunks in file order, shifts the line numbers and hands the matches to the listener.
+    public static long searchParallel(Path file, KMPPattern pattern, boolean skipHeader, KMPMatchListener listener)
+            throws IOException {
+        return runParallel(file, skipHeader,
+                (firstLine, inHeader, out) -> new KMPScanner(pattern, firstLine, inHeader,
+                        (lineNumber, lineOffset, lineLength, matchColumn) -> {
+                            out.add(lineNumber, lineOffset, lineLength).addData(matchColumn);
+                            return true;
+                        }),
+                (out, i, lineShift) -> listener.onMatch(out.lineNumber[i] + lineShift, out.lineOffset[i],
+                        out.lineLength[i], out.data[out.dataStart[i]]));
+    }
+
+    public static long searchParallel(Path file, AhoCorasickPattern patterns, boolean skipHeader,
+                                      AhoCorasickMatchListener listener) throws IOException {
+        int[] matched = new int[patterns.getPatternCount()];
+        return runParallel(file, skipHeader,
+                (firstLine, inHeader, out) -> new AhoCorasickScanner(patterns, firstLine, inHeader,
+                        (lineNumber, lineOffset, lineLength, found, count) -> {
+                            out.add(lineNumber, lineOffset, lineLength);
+                            for (int i = 0; i < count; i++) {
+                                out.addData(found[i]);
+                            }
+                            return true;
+                        }),
+                (out, i, lineShift) -> {
+                    int count = out.dataEnd(i) - out.dataStart[i];
+                    System.arraycopy(out.data, out.dataStart[i], matched, 0, count);
+                    return listener.onMatch(out.lineNumber[i] + lineShift, out.lineOffset[i], out.lineLength[i],
+                            matched, count);
+                });
+    }
+
+    private static long firstLineNumber(boolean skipHeader) {
+        return skipHeader ? 0 : 1;
+    }
+
+    private static long run(Path file, LineScanner scanner) throws IOException {
+        byte[] buf = new byte[SLICE];
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long chunkStart = 0; chunkStart < size && !scanner.stopped; chunkStart += MAP_CHUNK) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart,
+                        Math.min(MAP_CHUNK, size - chunkStart));
+                while (chunk.hasRemaining() && !scanner.stopped) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Search interrupted");
+                    }
+                    long base = chunkStart + chunk.position();
+                    int n = Math.min(buf.length, chunk.remaining());
+                    chunk.get(buf, 0, n);
+                    scanner.scan(buf, n, base);
+                }
+            }
+            if (!scanner.stopped) {
+                scanner.finish(size);
+            }
+        }
+        return scanner.matches;
+    }
+
+    private interface ScannerFactory {
+        LineScanner create(long firstLineNumber, boolean inHeader, MatchBuffer out);
+    }
+
+    private interface Delivery {
+        boolean deliver(MatchBuffer out, int index, long lineShift);
+    }
+
+    private static long runParallel(Path file, boolean skipHeader, ScannerFactory factory, Delivery delivery)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size, ForkJoinPool.getCommonPoolParallelism() * 4);
+            int chunks = bounds.length - 1;
+
+            List<ForkJoinTask<MatchBuffer>> tasks = new ArrayList<>(chunks);
+            for (int k = 0; k < chunks; k++) {
+                long start = bounds[k];
+                long end = bounds[k + 1];
+                boolean first = k == 0;
+                boolean last = k == chunks - 1;
+                tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                    MatchBuffer out = new MatchBuffer();
+                    LineScanner scanner = factory.create(first ? firstLineNumber(skipHeader) : 0, first && skipHeader, out);
+                    long startLine = scanner.lineNumber;
+                    scanRange(channel, start, end, scanner);
+                    if (last) scanner.finish(end);
+                    out.lines = scanner.lineNumber - startLine;
+                    return out;
+                }));
+            }
+
+            long matches = 0;
+            long nextLine = firstLineNumber(skipHeader);
+            try {
+                for (int k = 0; k < chunks; k++) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedIOException("Search interrupted");
+                    }
+                    MatchBuffer out = tasks.get(k).join();
+                    long lineShift = k == 0 ? 0 : nextLine;
+                    for (int i = 0; i < out.count; i++) {
+                        matches++;
+                        if (!delivery.deliver(out, i, lineShift)) return matches;
+                    }
+                    nextLine += out.lines;
+                    tasks.set(k, null); // let the delivered buffer be collected
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                for (ForkJoinTask<MatchBuffer> task : tasks) {
+                    if (task != null) task.cancel(false);
+                }
+            }
+            return matches;
+        }
+    }
+
+    // Roughly equal chunk boundaries moved forward to just after a line terminator;
+    // chunks are kept below the mapping size
+    private static long[] chunkBounds(FileChannel channel, long size, int minChunks) throws IOException {
+        int chunks = (int) Math.max(minChunks, (size + MAP_CHUNK - 1) / MAP_CHUNK);
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        int count = 1;
+        for (int k = 1; k < chunks; k++) {
+            long bound = Math.max(size * k / chunks, bounds[count - 1]);
+            bound = nextLineStart(channel, bound, size, probe);
+            if (bound > bounds[count - 1] && bound < size) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer probe) throws IOException {
+        while (position < size) {
+            probe.clear();
+            int n = channel.read(probe, position);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return position + i + 1;
+            }
+            position += n;
+        }
+        return size;
+    }
+
+    private static void scanRange(FileChannel channel, long start, long end, LineScanner scanner) {
+        try {
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] buf = new byte[SLICE];
+            scanner.lineStart = start;
+            while (chunk.hasRemaining()) {
+                long base = start + chunk.position();
+                int n = Math.min(buf.length, chunk.remaining());
+                chunk.get(buf, 0, n);
+                scanner.scan(buf, n, base);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Matches of one chunk: line number (chunk-local), offset and length per matching line,
+    // plus per-line data (the match column, or the pattern indices) in one flat array
+    private static final class MatchBuffer {
+        long[] lineNumber = new long[16];
+        long[] lineOffset = new long[16];
+        int[] lineLength = new int[16];
+        int[] dataStart = new int[16];
+        int[] data = new int[16];
+        int count;
+        int dataCount;
+        long lines;
+
+        MatchBuffer add(long number, long offset, int length) {
+            if (count == lineNumber.length) {
+                int newLength = count * 2;
+                lineNumber = Arrays.copyOf(lineNumber, newLength);
+                lineOffset = Arrays.copyOf(lineOffset, newLength);
+                lineLength = Arrays.copyOf(lineLength, newLength);
+                dataStart = Arrays.copyOf(dataStart, newLength);
+            }
+            lineNumber[count] = number;
+            lineOffset[count] = offset;
+            lineLength[count] = length;
+            dataStart[count] = dataCount;
+            count++;
+            return this;
+        }
+
+        void addData(int value) {
+            if (dataCount == data.length) {
+                data = Arrays.copyOf(data, dataCount * 2);
+            }
+            data[dataCount++] = value;
+        }
+
+        int dataEnd(int index) {
+            return index + 1 < count ? dataStart[index + 1] : dataCount;
+        }
+    }
+
+    // Line bookkeeping shared by the matchers; state carries over from one slice to the next
+    private abstract static class LineScanner {
+        long lineNumber;
+        boolean inHeader;
+        long lineStart;
+        boolean lastWasCR;
+        long matches;
+        boolean stopped;
+
+        LineScanner(long firstLineNumber, boolean inHeader) {
+            this.lineNumber = firstLineNumber;
+            this.inHeader = inHeader;
+        }
+
+        abstract void scan(byte[] buf, int n, long base);
+
+        // Report a final line that has no terminator
+        abstract void finish(long end);
+
+        int lineLength(long end) {
+            return (int) (end - lineStart) - (lastWasCR ? 1 : 0);
+        }
+
+        void nextLine(long start) {
+            lineNumber++;
+            lineStart = start;
+            inHeader = false;
+            lastWasCR = false;
+        }
+    }
+
+    private static final class KMPScanner extends LineScanner {
+        private final int[] dfa;
+        private final int m;
+        private final KMPMatchListener listener;
+        private int state;
+        private int matchColumn = -1;
+
+        KMPScanner(KMPPattern pattern, long firstLineNumber, boolean inHeader, KMPMatchListener listener) {
+            super(firstLineNumber, inHeader);
+            this.dfa = pattern.automaton();
+            this.m = pattern.length();
+            this.listener = listener;
+        }
+
+        @Override
+        void scan(byte[] buf, int n, long base) {
+            for (int i = 0; i < n; i++) {
+                byte c = buf[i];
+                if (c == '\n') {
+                    if (matchColumn >= 0) {
+                        report(base + i);
+                        if (stopped) return;
+                    }
+                    nextLine(base + i + 1);
+                    state = 0;
+                    matchColumn = -1;
+                    continue;
+                }
+                lastWasCR = c == '\r';
+                if (matchColumn >= 0 || inHeader) continue;
+                state = dfa[state * 256 + (c & 0xff)];
+                if (state == m) {
+                    matchColumn = (int) (base + i + 1 - m - lineStart);
+                }
+            }
+        }
+
+        @Override
+        void finish(long end) {
+            if (matchColumn >= 0) report(end);
+        }
+
+        private void report(long lineEnd) {
+            matches++;
+            stopped = !listener.onMatch(lineNumber, lineStart, lineLength(lineEnd), matchColumn);
+        }
+    }
+
+    private static final class AhoCorasickScanner extends LineScanner {
+        private final int[] next;
+        private final int[] outPattern;
+        private final int[] outLink;
+        private final AhoCorasickMatchListener listener;
+        private final boolean[] seen;
+        private final int[] found;
+        private int foundCount;
+        private int state;
+
+        AhoCorasickScanner(AhoCorasickPattern patterns, long firstLineNumber, boolean inHeader,
+                           AhoCorasickMatchListener listener) {
+            super(firstLineNumber, inHeader);
+            this.next = patterns.transitions();
+            this.outPattern = patterns.outPatterns();
+            this.outLink = patterns.outLinks();
+            this.listener = listener;
+            this.seen = new boolean[patterns.getPatternCount()];
+            this.found = new int[patterns.getPatternCount()];
+        }
+
+        @Override
+        void scan(byte[] buf, int n, long base) {
+            for (int i = 0; i < n; i++) {
+                byte c = buf[i];
+                if (c == '\n') {
+                    if (foundCount > 0) {
+                        report(base + i);
+                        if (stopped) return;
+                    }
+                    nextLine(base + i + 1);
+                    state = 0;
+                    continue;
+                }
+                lastWasCR = c == '\r';
+                if (inHeader) continue;
+                state = next[state * 256 + (c & 0xff)];
+                for (int s = outPattern[state] != -1 ? state : outLink[state]; s != -1; s = outLink[s]) {
+                    int p = outPattern[s];
+                    if (!seen[p]) {
+                        seen[p] = true;
+                        found[foundCount++] = p;
+                    }
+                }
+            }
+        }
+
+        @Override
+        void finish(long end) {
+            if (foundCount > 0) report(end);
+        }
+
+        private void report(long lineEnd) {
+            matches++;
+            stopped = !listener.onMatch(lineNumber, lineStart, lineLength(lineEnd), found, foundCount);
+            for (int i = 0; i < foundCount; i++) {
+                seen[found[i]] = false;
+            }
+            foundCount = 0;
+        }
+    }
+
+    // Read one reported line back from the file
+    public static String readLine(FileChannel channel, long lineOffset, int lineLength) throws IOException {
+        ByteBuffer line = ByteBuffer.allocate(lineLength);
+        while (line.hasRemaining()) {
+            if (channel.read(line, lineOffset + line.position()) < 0) break;
+        }
+        return new String(line.array(), 0, line.position(), StandardCharsets.UTF_8);
+    }
+
+    public static void main(String[] args) {
+        boolean skipHeader = !Arrays.asList(args).contains("--no-header");
+        boolean parallel = Arrays.asList(args).contains("--parallel");
+        String column = Arrays.stream(args).filter(arg -> arg.startsWith("--column="))
+                .map(arg -> arg.substring("--column=".length())).findFirst().orElse(null);
+        String[] params = Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+        if (params.length < 2) {
+            System.out.println("Usage: java KMPFileSearcher <csv file> <pattern> [<pattern> ...] [--no-header] [--parallel] [--column=<name>]");
+            return;
+        }
+        Path file = Paths.get(params[0]);
+        String[] patterns = Arrays.copyOfRange(params, 1, params.length);
+
+        long startTime = System.currentTimeMillis();
+        try (FileChannel lines = FileChannel.open(file, StandardOpenOption.READ);
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            long found;
+            if (column != null) {
+                if (patterns.length > 1) {
+                    System.err.println("A column search takes a single pattern.");
+                    return;
+                }
+                CsvColumnIndex index = CsvColumnIndex.open(file);
+                int c = index.columnIndex(column);
+                if (c < 0) {
+                    System.err.println("No column named " + column);
+                    return;
+                }
+                found = index.search(file, c, new KMPPattern(patterns[0]), (lineNumber, lineOffset, lineLength, matchColumn) -> {
+                    printLine(out, "Pattern found in line " + lineNumber + ": ", lines, lineOffset, lineLength);
+                    return true;
+                });
+            } else if (patterns.length == 1) {
+                KMPPattern compiled = new KMPPattern(patterns[0]);
+                KMPMatchListener printer = (lineNumber, lineOffset, lineLength, matchColumn) -> {
+                    printLine(out, "Pattern found in line " + lineNumber + ": ", lines, lineOffset, lineLength);
+                    return true;
+                };
+                found = parallel
+                        ? searchParallel(file, compiled, skipHeader, printer)
+                        : search(file, compiled, skipHeader, printer);
+            } else {
+                AhoCorasickPattern compiled = new AhoCorasickPattern(patterns);
+                AhoCorasickMatchListener printer = (lineNumber, lineOffset, lineLength, matched, count) -> {
+                    printLine(out, describe(compiled, matched, count) + " found in line " + lineNumber + ": ",
+                            lines, lineOffset, lineLength);
+                    return true;
+                };
+                found = parallel
+                        ? searchParallel(file, compiled, skipHeader, printer)
+                        : search(file, compiled, skipHeader, printer);
+            }
+            if (found == 0) {
+                out.write("Pattern not found in any record.");
+                out.newLine();
+            }
+            out.write(found + " matching lines in " + (System.currentTimeMillis() - startTime) + " ms");
+            out.newLine();
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+        }
+    }
+
+    // "Patterns [a, b]" for the patterns reported on one line
+    public static String describe(AhoCorasickPattern patterns, int[] matched, int count) {
+        StringBuilder sb = new StringBuilder(count == 1 ? "Pattern [" : "Patterns [");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(patterns.getPattern(matched[i]));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static void printLine(BufferedWriter out, String prefix, FileChannel lines, long lineOffset, int lineLength) {
+        try {
+            out.write(prefix + readLine(lines, lineOffset, lineLength));
+            out.newLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Matching lines of one search kept as positions in the searched file instead of copied
+// text: line number, offset and length per match, plus a label naming what was found on
+// the line ("Pattern", or the patterns of a multi-pattern search). The search thread appends
+// while the Swing thread reads, so every access is synchronized.
+public class KMPMatchList {
+
+    private static final int EXPORT_WINDOW = 1 << 20;
+
+    private long[] lineNumber = new long[1024];
+    private long[] lineOffset = new long[1024];
+    private int[] lineLength = new int[1024];
+    private int[] label = new int[1024];
+    private final List<String> labels = new ArrayList<>();
+    private final Map<String, Integer> labelIds = new HashMap<>();
+    private int size;
+
+    public synchronized int add(long number, long offset, int length, String labelText) {
+        if (size == lineNumber.length) {
+            int newLength = size * 2;
+            lineNumber = Arrays.copyOf(lineNumber, newLength);
+            lineOffset = Arrays.copyOf(lineOffset, newLength);
+            lineLength = Arrays.copyOf(lineLength, newLength);
+            label = Arrays.copyOf(label, newLength);
+        }
+        Integer id = labelIds.get(labelText);
+        if (id == null) {
+            id = labels.size();
+            labels.add(labelText);
+            labelIds.put(labelText, id);
+        }
+        lineNumber[size] = number;
+        lineOffset[size] = offset;
+        lineLength[size] = length;
+        label[size] = id;
+        return ++size;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long getLineNumber(int index) {
+        return lineNumber[index];
+    }
+
+    public synchronized long getLineOffset(int index) {
+        return lineOffset[index];
+    }
+
+    public synchronized int getLineLength(int index) {
+        return lineLength[index];
+    }
+
+    public synchronized String getLabel(int index) {
+        return labels.get(label[index]);
+    }
+
+    // "<label> found in line <n>: " as printed by the command line search
+    public String prefix(int index) {
+        return getLabel(index) + " found in line " + getLineNumber(index) + ": ";
+    }
+
+    // Stream every match to out as prefix + the line's bytes copied straight from the source,
+    // reading the source through one window that moves forward with the (ordered) offsets
+    public void writeTo(FileChannel source, OutputStream out) throws IOException {
+        int count = size();
+        ByteBuffer window = ByteBuffer.allocate(EXPORT_WINDOW);
+        long windowStart = 0;
+        int windowLength = 0;
+        for (int i = 0; i < count; i++) {
+            long offset = getLineOffset(i);
+            int length = getLineLength(i);
+            if (offset < windowStart || offset + length > windowStart + windowLength) {
+                if (window.capacity() < length) window = ByteBuffer.allocate(length);
+                window.clear();
+                windowStart = offset;
+                while (window.hasRemaining()) {
+                    if (source.read(window, windowStart + window.position()) < 0) break;
+                }
+                windowLength = window.position();
+            }
+            out.write(prefix(i).getBytes(StandardCharsets.UTF_8));
+            out.write(window.array(), (int) (offset - windowStart),
+                    (int) Math.max(0, Math.min(length, windowStart + windowLength - offset)));
+            out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
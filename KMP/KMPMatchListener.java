@@ -0,0 +1,9 @@
+// Receives the lines matched by KMPFileSearcher, in file order
+@FunctionalInterface
+public interface KMPMatchListener {
+
+    // lineOffset is the byte offset of the line in the file, lineLength its length in bytes
+    // without the line terminator and matchColumn the byte offset of the first match inside
+    // the line. Return false to stop the search.
+    boolean onMatch(long lineNumber, long lineOffset, int lineLength, int matchColumn);
+}
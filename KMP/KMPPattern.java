@@ -0,0 +1,58 @@
+import java.nio.charset.StandardCharsets;
+
+// A search pattern compiled once into a KMP automaton over UTF-8 bytes. Matching bytes
+// instead of chars lets files be scanned without decoding them; UTF-8 is self-synchronizing,
+// so a byte match is exactly a character match.
+public class KMPPattern {
+
+    private final String text;
+    private final byte[] bytes;
+    private final int[] dfa; // dfa[state * 256 + b] = next state; reaching length() is a match
+
+    public KMPPattern(String pattern) {
+        if (pattern.isEmpty()) {
+            throw new IllegalArgumentException("Pattern must not be empty");
+        }
+        this.text = pattern;
+        this.bytes = pattern.getBytes(StandardCharsets.UTF_8);
+        this.dfa = buildAutomaton(bytes);
+    }
+
+    // Standard KMP automaton: state j mismatching on b behaves like the longest proper
+    // border x of the first j bytes
+    private static int[] buildAutomaton(byte[] p) {
+        int m = p.length;
+        int[] dfa = new int[m * 256];
+        dfa[p[0] & 0xff] = 1;
+        int x = 0;
+        for (int j = 1; j < m; j++) {
+            System.arraycopy(dfa, x * 256, dfa, j * 256, 256);
+            dfa[j * 256 + (p[j] & 0xff)] = j + 1;
+            x = dfa[x * 256 + (p[j] & 0xff)];
+        }
+        return dfa;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    int[] automaton() {
+        return dfa;
+    }
+
+    // Index of the first match in b[from, to), or -1
+    public int indexIn(byte[] b, int from, int to) {
+        int m = bytes.length;
+        int state = 0;
+        for (int i = from; i < to; i++) {
+            state = dfa[state * 256 + (b[i] & 0xff)];
+            if (state == m) return i + 1 - m;
+        }
+        return -1;
+    }
+}
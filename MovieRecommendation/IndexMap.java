@@ -0,0 +1,43 @@
+// Dense user and movie indices of the matrix a model was built from, translated to those of
+// a later matrix, so the model keeps serving while ratings arrive. Ratings are only added,
+// so everything the model knows is still present; users and movies that are new since then
+// map back to -1. Built with one linear pass over the sorted id arrays.
+public class IndexMap {
+
+    private final int[] targetUserIds;
+    private final int[] targetMovieIds;
+    final int[] userFrom;  // target user index -> model user index, or -1
+    final int[] userTo;    // model user index -> target user index
+    final int[] movieFrom; // target movie index -> model movie index, or -1
+    final int[] movieTo;   // model movie index -> target movie index
+
+    IndexMap(int[] userIds, int[] movieIds, RatingMatrix target) {
+        targetUserIds = target.userIds;
+        targetMovieIds = target.movieIds;
+        userFrom = new int[target.getNumberOfUsers()];
+        userTo = new int[userIds.length];
+        match(userIds, target.userIds, userFrom, userTo);
+        movieFrom = new int[target.getNumberOfMovies()];
+        movieTo = new int[movieIds.length];
+        match(movieIds, target.movieIds, movieFrom, movieTo);
+    }
+
+    // True if this translates to r's indices; only the id arrays are kept, not the matrix
+    boolean isFor(RatingMatrix r) {
+        return r.userIds == targetUserIds && r.movieIds == targetMovieIds;
+    }
+
+    // Both id arrays are sorted and ids is a subset of targetIds
+    private static void match(int[] ids, int[] targetIds, int[] from, int[] to) {
+        int i = 0;
+        for (int t = 0; t < targetIds.length; t++) {
+            if (i < ids.length && ids[i] == targetIds[t]) {
+                from[t] = i;
+                to[i++] = t;
+            } else {
+                from[t] = -1;
+            }
+        }
+        if (i != ids.length) throw new IllegalArgumentException("Ratings were removed since the model was built");
+    }
+}
@@ -0,0 +1,195 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+// Latent-factor model of the ratings: rating(u, m) ~ mean + userFactors[u] . movieFactors[m].
+// Trained with alternating least squares: with the movie factors fixed every user's factors
+// are an independent regularized least-squares problem (and the other way round), so each
+// half-step solves all rows in parallel on the common fork-join pool. Factors of row i are
+// stored at [i * factors, (i + 1) * factors) of one flat float array per side.
+public class MatrixFactorization {
+
+    public static final int DEFAULT_FACTORS = 20;
+    public static final int DEFAULT_ITERATIONS = 10;
+    public static final float DEFAULT_LAMBDA = 0.1f;
+
+    private final int factors;
+    private final float mean;
+    private final float[] userFactors;
+    private final float[] movieFactors;
+    private final int[] userIds;  // ids behind the dense indices of the training ratings
+    private final int[] movieIds;
+    private volatile IndexMap lastMap;
+
+    private MatrixFactorization(RatingMatrix r, int factors, float mean, float[] userFactors, float[] movieFactors) {
+        this.factors = factors;
+        this.mean = mean;
+        this.userFactors = userFactors;
+        this.movieFactors = movieFactors;
+        this.userIds = r.userIds;
+        this.movieIds = r.movieIds;
+    }
+
+    public static MatrixFactorization train(RatingMatrix r) {
+        return train(r, DEFAULT_FACTORS, DEFAULT_ITERATIONS, DEFAULT_LAMBDA, 42);
+    }
+
+    // lambda is scaled by the number of ratings of each row (weighted-lambda regularization)
+    public static MatrixFactorization train(RatingMatrix r, int factors, int iterations, float lambda, long seed) {
+        int U = r.getNumberOfUsers();
+        int M = r.getNumberOfMovies();
+        double sum = 0;
+        for (byte rating : r.userRating) sum += rating;
+        float mean = r.getNumberOfRatings() == 0 ? 0 : (float) (sum / r.getNumberOfRatings());
+
+        Random random = new Random(seed);
+        float[] userFactors = new float[U * factors];
+        float[] movieFactors = new float[M * factors];
+        for (int i = 0; i < movieFactors.length; i++) {
+            movieFactors[i] = (float) (random.nextGaussian() * 0.1);
+        }
+
+        ThreadLocal<Solver> solver = ThreadLocal.withInitial(() -> new Solver(factors));
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            IntStream.range(0, U).parallel().forEach(u -> solver.get().solveRow(
+                    r.userStart, r.userMovie, r.userRating, u, movieFactors, userFactors, mean, lambda));
+            IntStream.range(0, M).parallel().forEach(m -> solver.get().solveRow(
+                    r.movieStart, r.movieUser, r.movieRating, m, userFactors, movieFactors, mean, lambda));
+        }
+        return new MatrixFactorization(r, factors, mean, userFactors, movieFactors);
+    }
+
+    // Normal equations (Q^T Q + lambda * n * I) x = Q^T (ratings - mean) of one row,
+    // solved by Cholesky decomposition
+    private static final class Solver {
+        final int f;
+        final double[] a;
+        final double[] b;
+
+        Solver(int f) {
+            this.f = f;
+            this.a = new double[f * f];
+            this.b = new double[f];
+        }
+
+        void solveRow(int[] start, int[] cols, byte[] ratings, int row, float[] fixed, float[] out,
+                      float mean, float lambda) {
+            Arrays.fill(a, 0);
+            Arrays.fill(b, 0);
+            int n = start[row + 1] - start[row];
+            for (int k = start[row]; k < start[row + 1]; k++) {
+                int base = cols[k] * f;
+                double residual = ratings[k] - mean;
+                for (int i = 0; i < f; i++) {
+                    double qi = fixed[base + i];
+                    b[i] += residual * qi;
+                    for (int j = 0; j <= i; j++) {
+                        a[i * f + j] += qi * fixed[base + j];
+                    }
+                }
+            }
+            double reg = lambda * Math.max(n, 1);
+            for (int i = 0; i < f; i++) {
+                a[i * f + i] += reg;
+            }
+
+            // Cholesky: a = L L^T, L kept in the lower triangle of a
+            for (int i = 0; i < f; i++) {
+                for (int j = 0; j <= i; j++) {
+                    double s = a[i * f + j];
+                    for (int k = 0; k < j; k++) s -= a[i * f + k] * a[j * f + k];
+                    a[i * f + j] = i == j ? Math.sqrt(s) : s / a[j * f + j];
+                }
+            }
+            // Forward then back substitution
+            for (int i = 0; i < f; i++) {
+                double s = b[i];
+                for (int k = 0; k < i; k++) s -= a[i * f + k] * b[k];
+                b[i] = s / a[i * f + i];
+            }
+            for (int i = f - 1; i >= 0; i--) {
+                double s = b[i];
+                for (int k = i + 1; k < f; k++) s -= a[k * f + i] * b[k];
+                b[i] = s / a[i * f + i];
+            }
+            int base = row * f;
+            for (int i = 0; i < f; i++) {
+                out[base + i] = (float) b[i];
+            }
+        }
+    }
+
+    // Indices of the training ratings translated to r, a later version of them
+    public IndexMap mapTo(RatingMatrix r) {
+        IndexMap map = lastMap;
+        if (map == null || !map.isFor(r)) {
+            map = new IndexMap(userIds, movieIds, r);
+            lastMap = map;
+        }
+        return map;
+    }
+
+    public int getFactors() {
+        return factors;
+    }
+
+    // Predicted rating of user u for movie m (dense indices)
+    public float predict(int u, int m) {
+        float dot = mean;
+        int ub = u * factors, mb = m * factors;
+        for (int i = 0; i < factors; i++) {
+            dot += userFactors[ub + i] * movieFactors[mb + i];
+        }
+        return dot;
+    }
+
+    // The n best predicted movies the user has not rated, best first, written to movies and
+    // scores as indices of r; returns how many were found. r may hold ratings added after
+    // training: movies new since then have no factors and are skipped, and a user new since
+    // then gets nothing. A bounded heap keeps this a partial sort.
+    public int topMovies(RatingMatrix r, int u, int n, int[] movies, float[] scores) {
+        IndexMap map = mapTo(r);
+        int mu = map.userFrom[u];
+        if (mu < 0) return 0;
+        boolean[] rated = new boolean[r.getNumberOfMovies()];
+        for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+            rated[r.userMovie[k]] = true;
+        }
+        TopN top = new TopN(n);
+        for (int m = 0; m < r.getNumberOfMovies(); m++) {
+            int mm = map.movieFrom[m];
+            if (!rated[m] && mm >= 0) top.offer(m, predict(mu, mm));
+        }
+        return top.drain(movies, scores);
+    }
+
+    // Root mean squared error over the given ratings
+    public double rmse(RatingMatrix r) {
+        double sum = 0;
+        for (int u = 0; u < r.getNumberOfUsers(); u++) {
+            for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+                double error = r.userRating[k] - predict(u, r.userMovie[k]);
+                sum += error * error;
+            }
+        }
+        return Math.sqrt(sum / Math.max(1, r.getNumberOfRatings()));
+    }
+
+    // Train and report the fit: java MatrixFactorization <ratings file> <movies file> [factors] [iterations]
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Usage: java MatrixFactorization <ratings file> <movies file> [factors] [iterations]");
+            return;
+        }
+        int factors = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_FACTORS;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ITERATIONS;
+        MovieRecommendationApp app = new MovieRecommendationApp(args[0], args[1], false);
+        RatingMatrix r = app.getGraph().getRatings();
+        long startTime = System.currentTimeMillis();
+        MatrixFactorization model = train(r, factors, iterations, DEFAULT_LAMBDA, 42);
+        long time = System.currentTimeMillis() - startTime;
+        System.out.println(factors + " factors, " + iterations + " iterations trained in " + time + " ms"
+                + " (" + (long) r.getNumberOfRatings() * iterations * 1000 / Math.max(1, time) + " ratings/s), "
+                + "training RMSE " + String.format("%.4f", model.rmse(r)));
+    }
+}
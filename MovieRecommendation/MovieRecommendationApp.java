@@ -1,162 +1,668 @@
 import javax.swing.*;
 import javax.swing.border.Border;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.GridLayout;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 
 public class MovieRecommendationApp {
     private JFrame frame;
     private JTextField userIdField;
-    private JTextArea recommendationsArea;
+    private JList<String> resultList;
+    private ResultListModel results;
     private JTextField movieNameField;
     private JComboBox<String> ratingRangeBox;
     private BipartiteGraph graph;
     private Map<Integer, String> movieNames;
+    private TitleIndex titleIndex;
+    private final String ratingsFile;
+    private volatile NeighborTable neighbors;
+    private volatile NeighborTable itemNeighbors;
+    private volatile MatrixFactorization model;
+    private volatile String engine = USER_BASED;
+    private RatingLog ratingLog;
+    private final RecommendationCache cache = new RecommendationCache(RecommendationCache.DEFAULT_CAPACITY);
+
+    // Models are rebuilt in the background after ratings change; until then the previous ones
+    // keep serving, matched to the new ratings by id
+    private final Object modelLock = new Object();
+    private final AtomicLong merges = new AtomicLong();
+    private volatile long modelMerges = -1; // merges the models include; -1 until first built
+    private volatile int modelRatings;
+    private volatile long modelBuilds;
+    private final Object rebuildLock = new Object();
+    private ScheduledExecutorService rebuilder;
+    private ScheduledFuture<?> pendingRebuild;
+    private long rebuildRequests;
+    private long firstPendingMerge;
+
+    static final String USER_BASED = "User-based";
+    static final String ITEM_BASED = "Item-based";
+    static final String MATRIX_FACTORIZATION = "Matrix factorization";
+    private static final int INVALIDATE_LIMIT = 256;
+    private static final long LOG_POLL_MILLIS = 1000;
+    private static final int COMPLETIONS = 10;
+    private static final long REBUILD_DELAY_MILLIS = 10_000;
+    private static final long REBUILD_MAX_DELAY_MILLIS = 60_000;
 
     public MovieRecommendationApp() {
-        graph = new BipartiteGraph();
-        movieNames = new HashMap<>();
-        String store=System.getProperty("user.dir");
-        initializeDataFromFile(store+"\\OOPSproject\\MovieRecommendation\\javaproject.txt");
-        initializeMovieNames(store+"\\OOPSproject\\MovieRecommendation\\movies.csv");
-        initializeGUI();
+        this(System.getProperty("user.dir")+"\\OOPSproject\\MovieRecommendation\\javaproject.txt",
+             System.getProperty("user.dir")+"\\OOPSproject\\MovieRecommendation\\movies.csv", true);
     }
 
-    private class BipartiteGraph {
-        private Map<Integer, Map<Integer, Integer>> userToMovie;
-        private Map<Integer, Map<Integer, Integer>> movieToUser;
+    // Load the given files; without the GUI the app can be driven directly (benchmarks)
+    MovieRecommendationApp(String ratingsFile, String moviesFile, boolean showGui) {
+        this.ratingsFile = ratingsFile;
+        try {
+            RatingLoader loaded = RatingLoader.open(ratingsFile, moviesFile);
+            graph = new BipartiteGraph(loaded.ratings);
+            movieNames = loaded.titles;
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            graph = new BipartiteGraph(RatingMatrix.EMPTY);
+            movieNames = new HashMap<>();
+        }
+        titleIndex = new TitleIndex(movieNames);
+        graph.setMergeListener(this::ratingsMerged);
+        if (showGui) {
+            initializeGUI();
+            startRatingLog();
+            startModelRebuilds();
+            loadModelsInBackground();
+        }
+    }
+
+    // Replay the rating log next to the ratings file, then keep adding what is appended to it
+    void startRatingLog() {
+        ratingLog = new RatingLog(RatingLog.logFileFor(ratingsFile), graph);
+        try {
+            ratingLog.poll();
+        } catch (IOException e) {
+            System.err.println("Error reading rating log: " + e.getMessage());
+        }
+        ratingLog.start(LOG_POLL_MILLIS);
+    }
+
+    // Load the saved neighbor tables, or compute them, and train the factor model without
+    // blocking the GUI; until they are ready recommendMovies uses the unweighted similar-user count
+    void loadModelsInBackground() {
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                loadModels();
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException ex) {
+                    System.err.println("Error preparing recommendation models: " + ex.getCause().getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    // Load or compute the neighbor tables and train the factor model for the current ratings.
+    // One build runs at a time, so a later one always ends with the newer ratings.
+    void loadModels() throws IOException {
+        synchronized (modelLock) {
+            graph.getRatings(); // merge what is staged, so the count taken next includes it
+            long mergeCount = merges.get();
+            RatingMatrix r = graph.getRatings();
+            neighbors = NeighborTable.open(NeighborTable.tableFileFor(ratingsFile, false), r, false,
+                    NeighborTable.DEFAULT_K);
+            itemNeighbors = NeighborTable.open(NeighborTable.tableFileFor(ratingsFile, true), r, true,
+                    NeighborTable.DEFAULT_K);
+            model = MatrixFactorization.train(r);
+            modelRatings = r.getNumberOfRatings();
+            modelMerges = mergeCount;
+            modelBuilds++;
+        }
+        cache.clear(); // results cached before the models were ready came from the fallback
+    }
+
+    // Rebuild the models in the background whenever ratings are merged (GUI and server)
+    void startModelRebuilds() {
+        synchronized (rebuildLock) {
+            if (rebuilder == null) {
+                rebuilder = Executors.newSingleThreadScheduledExecutor(task -> {
+                    Thread thread = new Thread(task, "model-rebuild");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+    }
+
+    // Rebuild REBUILD_DELAY_MILLIS after the last merge, so a burst of ratings costs one
+    // rebuild, but no later than REBUILD_MAX_DELAY_MILLIS after the first merge it waits for,
+    // so a steady stream cannot put it off forever
+    private void scheduleModelRebuild() {
+        synchronized (rebuildLock) {
+            if (rebuilder == null) return;
+            long now = System.currentTimeMillis();
+            if (pendingRebuild == null) {
+                firstPendingMerge = now;
+            } else {
+                pendingRebuild.cancel(false);
+            }
+            long request = ++rebuildRequests;
+            long delay = Math.max(0, Math.min(REBUILD_DELAY_MILLIS, firstPendingMerge + REBUILD_MAX_DELAY_MILLIS - now));
+            pendingRebuild = rebuilder.schedule(() -> rebuildModels(request), delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void rebuildModels(long request) {
+        synchronized (rebuildLock) {
+            if (request != rebuildRequests) return; // replaced by a later request
+            pendingRebuild = null;
+        }
+        try {
+            synchronized (modelLock) {
+                if (modelMerges < 0 || modelsStale()) loadModels();
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error rebuilding recommendation models: " + e.getMessage());
+        }
+    }
+
+    boolean modelsReady() {
+        return modelMerges >= 0;
+    }
+
+    // True if ratings were merged after the models were built from them
+    boolean modelsStale() {
+        long built = modelMerges;
+        return built >= 0 && merges.get() > built;
+    }
+
+    // Ratings the models have not seen (counting changed ratings once as new ones, not at all)
+    int modelRatingsBehind() {
+        return modelsReady() ? graph.getRatings().getNumberOfRatings() - modelRatings : 0;
+    }
+
+    long getModelBuilds() {
+        return modelBuilds;
+    }
+
+    // Install a user or movie neighbor table directly (tests, benchmarks, headless use)
+    void setNeighbors(NeighborTable table) {
+        if (table.isMovieSide()) {
+            itemNeighbors = table;
+        } else {
+            neighbors = table;
+        }
+        cache.clear();
+    }
+
+    void setModel(MatrixFactorization model) {
+        this.model = model;
+        cache.clear();
+    }
+
+    // USER_BASED, ITEM_BASED or MATRIX_FACTORIZATION
+    void setEngine(String engine) {
+        this.engine = engine;
+    }
+
+    BipartiteGraph getGraph() {
+        return graph;
+    }
+
+    // Ratings of users for movies, safe to add to and query from any number of threads.
+    // addRating appends to one of STRIPES staging buffers chosen by user, each with its own
+    // lock, so concurrent writers rarely contend. Queries read an immutable RatingMatrix
+    // (CSR arrays for both directions); the first query after an add merges everything staged
+    // into a new matrix and publishes it with one volatile write, so a reader always sees
+    // one complete snapshot. Ratings of one user keep their order (the later one wins).
+    static class BipartiteGraph {
+        static final int MIN_COMMON_MOVIES = 3;
+        private static final int STRIPES = 16;
+        private static final ThreadLocal<int[]> COMMON_COUNTS = ThreadLocal.withInitial(() -> new int[0]);
+
+        private volatile RatingMatrix ratings = RatingMatrix.EMPTY;
+        private final Stripe[] stripes = new Stripe[STRIPES];
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final Object mergeLock = new Object();
+        private volatile MergeListener listener;
+
+        // Called after each merge with the new matrix and the ratings merged into it
+        interface MergeListener {
+            void merged(RatingMatrix r, int[] users, int[] movies, byte[] ratings, int count);
+        }
+
+        // Staged ratings of the users hashed to one stripe, guarded by the stripe itself
+        private static final class Stripe {
+            int[] users;
+            int[] movies;
+            byte[] ratings;
+            int count;
+
+            Stripe(int capacity) {
+                users = new int[capacity];
+                movies = new int[capacity];
+                ratings = new byte[capacity];
+            }
+
+            void add(int userId, int movieId, int rating) {
+                if (count == users.length) {
+                    users = Arrays.copyOf(users, count * 2);
+                    movies = Arrays.copyOf(movies, count * 2);
+                    ratings = Arrays.copyOf(ratings, count * 2);
+                }
+                users[count] = userId;
+                movies[count] = movieId;
+                ratings[count] = (byte) rating;
+                count++;
+            }
+
+            // Hand over the staged ratings and start again with empty buffers
+            Stripe drain() {
+                Stripe staged = new Stripe(0);
+                staged.users = users;
+                staged.movies = movies;
+                staged.ratings = ratings;
+                staged.count = count;
+                users = new int[1024];
+                movies = new int[1024];
+                ratings = new byte[1024];
+                count = 0;
+                return staged;
+            }
+        }
 
         public BipartiteGraph() {
-            userToMovie = new HashMap<>();
-            movieToUser = new HashMap<>();
+            this(RatingMatrix.EMPTY);
+        }
+
+        // Start from ratings loaded in bulk
+        BipartiteGraph(RatingMatrix ratings) {
+            this.ratings = ratings;
+            for (int i = 0; i < STRIPES; i++) {
+                stripes[i] = new Stripe(1024);
+            }
         }
 
         public void addRating(int userId, int movieId, int rating) {
-            userToMovie.computeIfAbsent(userId, k -> new HashMap<>())
-                      .put(movieId, rating);
-            movieToUser.computeIfAbsent(movieId, k -> new HashMap<>())
-                      .put(userId, rating);
+            Stripe stripe = stripes[Math.floorMod(userId, STRIPES)];
+            synchronized (stripe) {
+                stripe.add(userId, movieId, rating);
+                pendingCount.incrementAndGet();
+            }
         }
 
+        void setMergeListener(MergeListener listener) {
+            this.listener = listener;
+        }
+
+        // Current ratings, merging anything added since the last call. Writers are held up
+        // only while their stripe's buffers are swapped out, not during the merge itself.
+        public RatingMatrix getRatings() {
+            if (pendingCount.get() == 0) return ratings;
+            synchronized (mergeLock) {
+                if (pendingCount.get() == 0) return ratings;
+                Stripe[] taken = new Stripe[STRIPES];
+                int count = 0;
+                for (int i = 0; i < STRIPES; i++) {
+                    synchronized (stripes[i]) {
+                        taken[i] = stripes[i].drain();
+                        pendingCount.addAndGet(-taken[i].count);
+                        count += taken[i].count;
+                    }
+                }
+                int[] users = new int[count];
+                int[] movies = new int[count];
+                byte[] added = new byte[count];
+                int n = 0;
+                for (Stripe stripe : taken) {
+                    System.arraycopy(stripe.users, 0, users, n, stripe.count);
+                    System.arraycopy(stripe.movies, 0, movies, n, stripe.count);
+                    System.arraycopy(stripe.ratings, 0, added, n, stripe.count);
+                    n += stripe.count;
+                }
+                RatingMatrix merged = ratings.withRatings(users, movies, added, count);
+                ratings = merged;
+                MergeListener current = listener;
+                if (current != null) current.merged(merged, users, movies, added, count);
+                return merged;
+            }
+        }
+
+        // Copy of a user's ratings keyed by movie id
         public Map<Integer, Integer> getUserRatings(int userId) {
-            return userToMovie.getOrDefault(userId, new HashMap<>());
+            RatingMatrix r = getRatings();
+            Map<Integer, Integer> result = new HashMap<>();
+            int u = r.userIndex(userId);
+            if (u >= 0) {
+                for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+                    result.put(r.movieIds[r.userMovie[k]], (int) r.userRating[k]);
+                }
+            }
+            return result;
         }
 
+        // Copy of a movie's ratings keyed by user id
         public Map<Integer, Integer> getMovieRatings(int movieId) {
-            return movieToUser.getOrDefault(movieId, new HashMap<>());
+            RatingMatrix r = getRatings();
+            Map<Integer, Integer> result = new HashMap<>();
+            int m = r.movieIndex(movieId);
+            if (m >= 0) {
+                for (int k = r.movieStart[m]; k < r.movieStart[m + 1]; k++) {
+                    result.put(r.userIds[r.movieUser[k]], (int) r.movieRating[k]);
+                }
+            }
+            return result;
         }
 
+        // Users sharing at least 3 rated movies with userId
         public Set<Integer> findSimilarUsers(int userId) {
+            RatingMatrix r = getRatings();
+            int u = r.userIndex(userId);
             Set<Integer> similarUsers = new HashSet<>();
-            Map<Integer, Integer> userMovies = getUserRatings(userId);
-
-            for (Map.Entry<Integer, Map<Integer, Integer>> entry : userToMovie.entrySet()) {
-                int otherUserId = entry.getKey();
-                if (otherUserId == userId) continue;
+            if (u < 0) return similarUsers;
+            for (int v : similarUsers(r, u)) {
+                similarUsers.add(r.userId(v));
+            }
+            return similarUsers;
+        }
 
-                long commonMovies = entry.getValue().keySet()
-                    .stream()
-                    .filter(userMovies::containsKey)
-                    .count();
+        // Dense indices of the users sharing at least MIN_COMMON_MOVIES movies with user u.
+        // The movie side serves as an inverted index: only users who rated one of u's movies
+        // are ever touched, and their counts live in a reused per-thread array.
+        static int[] similarUsers(RatingMatrix r, int u) {
+            int[] common = COMMON_COUNTS.get();
+            if (common.length < r.getNumberOfUsers()) {
+                common = new int[r.getNumberOfUsers()];
+                COMMON_COUNTS.set(common);
+            }
+            int[] touched = new int[64];
+            int touchedCount = 0;
+            for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+                int m = r.userMovie[k];
+                for (int j = r.movieStart[m]; j < r.movieStart[m + 1]; j++) {
+                    int v = r.movieUser[j];
+                    if (common[v]++ == 0) {
+                        if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                        touched[touchedCount++] = v;
+                    }
+                }
+            }
 
-                if (commonMovies >= 3) {
-                    similarUsers.add(otherUserId);
+            int count = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int v = touched[i];
+                if (v != u && common[v] >= MIN_COMMON_MOVIES) {
+                    touched[count++] = v;
                 }
+                common[v] = 0;
             }
-            return similarUsers;
+            int[] similar = Arrays.copyOf(touched, count);
+            Arrays.sort(similar);
+            return similar;
         }
     }
 
-    private void initializeDataFromFile(String filePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("userId")) continue;
-                String[] parts = line.split("\t");
-                int userId = Integer.parseInt(parts[0]);
-                int movieId = Integer.parseInt(parts[1]);
-                int rating = (int) Math.round(Double.parseDouble(parts[2]));
-                graph.addRating(userId, movieId, rating);
+    // Cached recommendations of the current engine; computed on a miss
+    List<String> recommendMovies(int userId) {
+        return recommendMovies(engine, userId);
+    }
+
+    List<String> recommendMovies(String currentEngine, int userId) {
+        graph.getRatings(); // merge staged ratings first, dropping the cached lists they change
+        long stamp = cache.stamp();
+        List<String> cached = cache.get(currentEngine, userId);
+        if (cached != null) return cached;
+        List<String> result = List.copyOf(computeRecommendations(currentEngine, userId));
+        cache.put(currentEngine, userId, result, stamp);
+        return result;
+    }
+
+    // Add a rating from any thread; it is seen by the next query
+    void addRating(int userId, int movieId, int rating) {
+        graph.addRating(userId, movieId, rating);
+    }
+
+    // New ratings were merged: drop the cached lists they change and schedule a model rebuild
+    private void ratingsMerged(RatingMatrix r, int[] users, int[] movies, byte[] ratings, int count) {
+        merges.incrementAndGet();
+        invalidateRecommendations(r, users, movies, ratings, count);
+        scheduleModelRebuild();
+    }
+
+    // After a merge drop the cached recommendations the new ratings can change: those of the
+    // raters, of the users similar to them and of the other raters of each movie (who may
+    // have just become similar). Large batches simply clear the cache.
+    private void invalidateRecommendations(RatingMatrix r, int[] users, int[] movies, byte[] ratings, int count) {
+        if (count > INVALIDATE_LIMIT) {
+            cache.clear();
+            return;
+        }
+        boolean[] stale = new boolean[r.getNumberOfUsers()];
+        boolean[] rater = new boolean[r.getNumberOfUsers()];
+        for (int i = 0; i < count; i++) {
+            int u = r.userIndex(users[i]);
+            if (rater[u]) continue;
+            rater[u] = true;
+            stale[u] = true;
+            for (int v : BipartiteGraph.similarUsers(r, u)) {
+                stale[v] = true;
             }
-        } catch (IOException e) {
-            System.err.println("Error reading file: " + e.getMessage());
+        }
+        for (int i = 0; i < count; i++) {
+            int m = r.movieIndex(movies[i]);
+            for (int k = r.movieStart[m]; k < r.movieStart[m + 1]; k++) {
+                stale[r.movieUser[k]] = true;
+            }
+        }
+        for (int u = 0; u < stale.length; u++) {
+            if (stale[u]) cache.invalidate(r.userId(u));
         }
     }
 
-    private void initializeMovieNames(String filePath) {
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                if (line.startsWith("movieId")) continue;
-                String[] parts = line.split(",");
-                int movieId = Integer.parseInt(parts[0]);
-                String movieName = parts[1].trim();
-                movieNames.put(movieId, movieName);
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading movie names file: " + e.getMessage());
+    RecommendationCache getCache() {
+        return cache;
+    }
+
+    List<String> computeRecommendations(String engine, int userId) {
+        RatingMatrix r = graph.getRatings();
+        int u = r.userIndex(userId);
+        if (u < 0) return new ArrayList<>();
+        // The models may predate the latest ratings; users they have not seen fall back to
+        // the unweighted similar-user count
+        MatrixFactorization factors = model;
+        if (MATRIX_FACTORIZATION.equals(engine) && factors != null && factors.mapTo(r).userFrom[u] >= 0) {
+            return recommendByFactors(r, factors, u, 10);
         }
+        MovieScores scores = new MovieScores(r, u);
+        NeighborTable items = itemNeighbors;
+        NeighborTable users = neighbors;
+        if (ITEM_BASED.equals(engine) && items != null) {
+            scoreBySimilarMovies(r, items, u, scores);
+        } else if (users != null && users.mapTo(r).userFrom[u] >= 0) {
+            scoreByNeighbors(r, users, u, scores);
+        } else {
+            scoreBySimilarUsers(r, u, scores);
+        }
+        return topMovies(r, scores, 10);
     }
 
-    private List<String> recommendMovies(int userId) {
-        Set<Integer> similarUsers = graph.findSimilarUsers(userId);
-        Map<Integer, Integer> userRatedMovies = graph.getUserRatings(userId);
-        Map<Integer, Integer> movieScores = new HashMap<>();
-        Map<Integer, Integer> ratingCounts = new HashMap<>();
+    // Catalog-wide ranking by predicted rating from the latent factors
+    private List<String> recommendByFactors(RatingMatrix r, MatrixFactorization factors, int u, int n) {
+        int[] movies = new int[n];
+        float[] predicted = new float[n];
+        int count = factors.topMovies(r, u, n, movies, predicted);
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            result.add(formatMovie(r, movies[i], Math.max(0.5, Math.min(5, predicted[i]))));
+        }
+        return result;
+    }
 
-        for (int similarUser : similarUsers) {
-            Map<Integer, Integer> similarUserRatings = graph.getUserRatings(similarUser);
-            for (Map.Entry<Integer, Integer> entry : similarUserRatings.entrySet()) {
-                int movieId = entry.getKey();
-                int rating = entry.getValue();
-                if (!userRatedMovies.containsKey(movieId) && rating >= 4) {
-                    movieScores.put(movieId, movieScores.getOrDefault(movieId, 0) + rating);
-                    ratingCounts.put(movieId, ratingCounts.getOrDefault(movieId, 0) + 1);
+    // Every similar user's rating of 4 or more adds to the movie's score
+    private void scoreBySimilarUsers(RatingMatrix r, int u, MovieScores scores) {
+        for (int v : BipartiteGraph.similarUsers(r, u)) {
+            for (int k = r.userStart[v]; k < r.userStart[v + 1]; k++) {
+                if (r.userRating[k] >= 4) {
+                    scores.add(r.userMovie[k], r.userRating[k], 1);
                 }
             }
         }
+    }
+
+    // Similarity-weighted: every neighbor's rating of 4 or more counts with the neighbor's
+    // similarity as weight; the shown rating is the weighted average
+    private void scoreByNeighbors(RatingMatrix r, NeighborTable table, int u, MovieScores scores) {
+        IndexMap map = table.mapTo(r);
+        int row = map.userFrom[u];
+        for (int i = table.neighborStart(row); i < table.neighborEnd(row); i++) {
+            int v = map.userTo[table.neighbor(i)];
+            float similarity = table.similarity(i);
+            for (int k = r.userStart[v]; k < r.userStart[v + 1]; k++) {
+                if (r.userRating[k] >= 4) {
+                    scores.add(r.userMovie[k], similarity * r.userRating[k], similarity);
+                }
+            }
+        }
+    }
 
-        return movieScores.entrySet().stream()
-                .sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .limit(10)
-                .map(entry -> {
-                    int movieId = entry.getKey();
-                    String movieName = movieNames.getOrDefault(movieId, "Unknown Movie");
-                    double avgRating = (double) entry.getValue() / ratingCounts.get(movieId);
-                    return movieName + " - " + String.format("%.1f", avgRating);
-                })
-                .collect(Collectors.toList());
+    // Item-based: each movie the user rated passes its rating on to its most similar movies,
+    // weighted by similarity; the shown rating is the weighted average of the user's ratings
+    private void scoreBySimilarMovies(RatingMatrix r, NeighborTable table, int u, MovieScores scores) {
+        IndexMap map = table.mapTo(r);
+        for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+            int row = map.movieFrom[r.userMovie[k]];
+            if (row < 0) continue; // rated after the table was computed
+            int rating = r.userRating[k];
+            for (int i = table.neighborStart(row); i < table.neighborEnd(row); i++) {
+                float similarity = table.similarity(i);
+                scores.add(map.movieTo[table.neighbor(i)], similarity * rating, similarity);
+            }
+        }
     }
 
-    private List<String> findUsersWhoRatedMovie(String movieName, int ratingRange) {
-        Optional<Integer> movieIdOpt = movieNames.entrySet().stream()
-                .filter(entry -> entry.getValue().equalsIgnoreCase(movieName))
-                .map(Map.Entry::getKey)
-                .findFirst();
+    // Score and weight per movie for one request. Movies the user rated are never
+    // candidates; the others are listed the first time they receive a score.
+    private static class MovieScores {
+        private static final byte RATED = 1;
+        private static final byte CANDIDATE = 2;
+
+        final float[] score;
+        final float[] weight;
+        final byte[] state;
+        int[] candidates = new int[64];
+        int count;
+
+        MovieScores(RatingMatrix r, int u) {
+            score = new float[r.getNumberOfMovies()];
+            weight = new float[r.getNumberOfMovies()];
+            state = new byte[r.getNumberOfMovies()];
+            for (int k = r.userStart[u]; k < r.userStart[u + 1]; k++) {
+                state[r.userMovie[k]] = RATED;
+            }
+        }
 
-        if (movieIdOpt.isEmpty()) {
-            recommendationsArea.setText("Movie not found.");
-            return Collections.emptyList();
+        void add(int movie, float movieScore, float movieWeight) {
+            if (state[movie] == RATED) return;
+            if (state[movie] == 0) {
+                state[movie] = CANDIDATE;
+                if (count == candidates.length) candidates = Arrays.copyOf(candidates, count * 2);
+                candidates[count++] = movie;
+            }
+            score[movie] += movieScore;
+            weight[movie] += movieWeight;
         }
+    }
 
-        int movieId = movieIdOpt.get();
-        List<String> users = new ArrayList<>();
-        Map<Integer, Integer> movieRatings = graph.getMovieRatings(movieId);
+    // The n highest scores (equal scores by movie id) as "name - rating"
+    private List<String> topMovies(RatingMatrix r, MovieScores scores, int n) {
+        TopN top = new TopN(n);
+        for (int i = 0; i < scores.count; i++) {
+            int movie = scores.candidates[i];
+            top.offer(movie, scores.score[movie]);
+        }
+        int[] movies = new int[n];
+        int count = top.drain(movies, null);
+        List<String> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(formatMovie(r, movies[i], scores.score[movies[i]] / scores.weight[movies[i]]));
+        }
+        return result;
+    }
 
-        for (Map.Entry<Integer, Integer> entry : movieRatings.entrySet()) {
-            int lowerBound = ratingRange - 1;
-            int upperBound = ratingRange;
-            
-            if (entry.getValue() > lowerBound && entry.getValue() <= upperBound) {
-                users.add("User " + entry.getKey() + " rated " + movieName + " with " + entry.getValue());
+    // "name - rating" for a dense movie index
+    private String formatMovie(RatingMatrix r, int movie, double rating) {
+        String movieName = movieNames.getOrDefault(r.movieId(movie), "Unknown Movie");
+        return movieName + " - " + String.format("%.1f", rating);
+    }
+
+    // Id of the movie with this name (ignoring case), or -1
+    private int findMovieId(String movieName) {
+        return titleIndex.movieId(movieName);
+    }
+
+    // Users whose rating of the movie falls in (ratingRange - 1, ratingRange], kept as ids only.
+    // Ratings are whole stars, so that is one star bucket of the movie.
+    private int[] findUsersWhoRatedMovie(int movieId, int ratingRange) {
+        RatingMatrix r = graph.getRatings();
+        int m = r.movieIndex(movieId);
+        if (m < 0) return new int[0];
+        return r.usersWithRating(m, ratingRange);
+    }
+
+    // List model for the result pane: a header line followed by rows that are only turned
+    // into text when the list paints them, so large results never become one big string
+    private static class ResultListModel extends AbstractListModel<String> {
+        private static final long serialVersionUID = 1L;
+
+        private String header = "";
+        private int rows;
+        private IntFunction<String> row = i -> "";
+
+        // Rows present before and after are reported as changed, the rest as removed or added
+        void show(String header, int rows, IntFunction<String> row) {
+            int oldSize = getSize();
+            this.header = header;
+            this.rows = rows;
+            this.row = row;
+            int newSize = getSize();
+            fireContentsChanged(this, 0, Math.min(oldSize, newSize) - 1);
+            if (newSize < oldSize) {
+                fireIntervalRemoved(this, newSize, oldSize - 1);
+            } else if (newSize > oldSize) {
+                fireIntervalAdded(this, oldSize, newSize - 1);
             }
         }
 
-        return users;
+        void show(String message) {
+            show(message, 0, i -> "");
+        }
+
+        @Override
+        public int getSize() {
+            return 1 + rows;
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return index == 0 ? header : row.apply(index - 1);
+        }
     }
 
     private void initializeGUI() {
@@ -177,7 +683,7 @@ public class MovieRecommendationApp {
     }
 
     private void placeComponents(JPanel panel) {
-        JPanel inputPanel = new JPanel(new GridLayout(4, 2, 10, 10));
+        JPanel inputPanel = new JPanel(new GridLayout(5, 2, 10, 10));
         inputPanel.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         JLabel userLabel = new JLabel("User ID:");
@@ -185,11 +691,16 @@ public class MovieRecommendationApp {
         
         JLabel movieLabel = new JLabel("Movie Name:");
         movieNameField = new JTextField(20);
+        addTitleCompletion(movieNameField);
         
         JLabel ratingLabel = new JLabel("Rating Range:");
         String[] ratings = {"1 Star", "2 Stars", "3 Stars", "4 Stars", "5 Stars"};
         ratingRangeBox = new JComboBox<>(ratings);
 
+        JLabel engineLabel = new JLabel("Recommend By:");
+        JComboBox<String> engineBox = new JComboBox<>(new String[] {USER_BASED, ITEM_BASED, MATRIX_FACTORIZATION});
+        engineBox.addActionListener(e -> setEngine((String) engineBox.getSelectedItem()));
+
         JButton recommendButton = new JButton("Recommend Movies");
         JButton findUsersButton = new JButton("Find Similar Users");
 
@@ -202,34 +713,49 @@ public class MovieRecommendationApp {
         inputPanel.add(movieNameField);
         inputPanel.add(ratingLabel);
         inputPanel.add(ratingRangeBox);
+        inputPanel.add(engineLabel);
+        inputPanel.add(engineBox);
         inputPanel.add(recommendButton);
         inputPanel.add(findUsersButton);
         
         panel.add(inputPanel);
 
-        recommendationsArea = new JTextArea(10, 30);
-        recommendationsArea.setLineWrap(true);
-        recommendationsArea.setWrapStyleWord(true);
-        recommendationsArea.setEditable(false);
+        results = new ResultListModel();
+        resultList = new JList<>(results);
+        // A prototype gives every cell the same size, so only the visible rows are ever rendered
+        resultList.setPrototypeCellValue("User 000000 rated a movie with a reasonably long title with 5");
         
-        JScrollPane scrollPane = new JScrollPane(recommendationsArea);
+        JScrollPane scrollPane = new JScrollPane(resultList);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_ALWAYS);
         
         panel.add(scrollPane);
 
         recommendButton.addActionListener(new ActionListener() {
             public void actionPerformed(ActionEvent e) {
+                int userId;
                 try {
-                    int userId = Integer.parseInt(userIdField.getText());
-                    List<String> recommendedMovies = recommendMovies(userId);
-                    String output = "Recommended Movies (Movie Name - Rating):\n" + String.join("\n", recommendedMovies);
-                    recommendationsArea.setText(output);
-                    writeToFile("output.txt", output);
+                    userId = Integer.parseInt(userIdField.getText());
                 } catch (NumberFormatException ex) {
-                    String errorMessage = "Please enter a valid User ID.";
-                    recommendationsArea.setText(errorMessage);
-                    writeToFile("C:\\\\Users\\\\Momin\\\\eclipse-workspace\\\\begineer course\\\\src\\\\output", errorMessage);
+                    results.show("Please enter a valid User ID.");
+                    writeToFile("C:\\\\Users\\\\Momin\\\\eclipse-workspace\\\\begineer course\\\\src\\\\output");
+                    return;
                 }
+                results.show("Finding recommendations for user " + userId + " ...");
+                new SwingWorker<List<String>, Void>() {
+                    @Override
+                    protected List<String> doInBackground() {
+                        return recommendMovies(userId);
+                    }
+
+                    @Override
+                    protected void done() {
+                        List<String> recommendedMovies = getResult(this);
+                        if (recommendedMovies == null) return;
+                        results.show("Recommended Movies (Movie Name - Rating):", recommendedMovies.size(),
+                                recommendedMovies::get);
+                        writeToFile("output.txt");
+                    }
+                }.execute();
             }
         });
 
@@ -237,21 +763,78 @@ public class MovieRecommendationApp {
             public void actionPerformed(ActionEvent e) {
                 String movieName = movieNameField.getText().trim();
                 int selectedRating = ratingRangeBox.getSelectedIndex() + 1;
-                
-                List<String> users = findUsersWhoRatedMovie(movieName, selectedRating);
-                String output;
-                if (users.isEmpty()) {
-                    output = "No users found who rated the movie " + selectedRating + " stars.";
-                } else {
-                    output = "Users who rated " + movieName + " " + selectedRating + " stars:\n" + 
-                            String.join("\n", users);
-                }
-                recommendationsArea.setText(output);
-                writeToFile("C:\\Users\\Momin\\eclipse-workspace\\begineer course\\src\\output", output);
+                results.show("Searching for users who rated " + movieName + " ...");
+                new SwingWorker<int[], Void>() {
+                    @Override
+                    protected int[] doInBackground() {
+                        int movieId = findMovieId(movieName);
+                        return movieId < 0 ? null : findUsersWhoRatedMovie(movieId, selectedRating);
+                    }
+
+                    @Override
+                    protected void done() {
+                        int[] users = getResult(this);
+                        if (users == null) {
+                            results.show("Movie not found.");
+                        } else if (users.length == 0) {
+                            results.show("No users found who rated the movie " + selectedRating + " stars.");
+                        } else {
+                            results.show("Users who rated " + movieName + " " + selectedRating + " stars:", users.length,
+                                    i -> "User " + users[i] + " rated " + movieName + " with " + selectedRating);
+                        }
+                        writeToFile("C:\\Users\\Momin\\eclipse-workspace\\begineer course\\src\\output");
+                    }
+                }.execute();
+            }
+        });
+    }
+
+    // Typeahead for the movie field: a popup of up to COMPLETIONS titles starting with what was
+    // typed, refreshed on every edit; picking one fills in the field
+    private void addTitleCompletion(JTextField field) {
+        JPopupMenu popup = new JPopupMenu();
+        popup.setFocusable(false);
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(() -> showCompletions(field, popup));
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(() -> showCompletions(field, popup));
+            }
+
+            public void changedUpdate(DocumentEvent e) {
             }
         });
     }
 
+    private void showCompletions(JTextField field, JPopupMenu popup) {
+        popup.setVisible(false);
+        popup.removeAll();
+        String typed = field.getText().stripLeading();
+        if (typed.isEmpty() || !field.isFocusOwner()) return;
+        List<String> titles = titleIndex.complete(typed, COMPLETIONS);
+        if (titles.size() == 1 && titles.get(0).equalsIgnoreCase(typed.trim())) return; // already complete
+        for (String title : titles) {
+            JMenuItem item = new JMenuItem(title);
+            item.addActionListener(e -> field.setText(title));
+            popup.add(item);
+        }
+        if (!titles.isEmpty()) popup.show(field, 0, field.getHeight());
+    }
+
+    // Result of a finished worker, or null after showing its error in the result pane
+    private <T> T getResult(SwingWorker<T, ?> worker) {
+        try {
+            return worker.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            results.show("Error: " + ex.getCause().getMessage());
+        }
+        return null;
+    }
+
     private void addHoverEffect(JButton button) {
         button.setBackground(Color.LIGHT_GRAY);
         button.setFocusPainted(false);
@@ -268,9 +851,13 @@ public class MovieRecommendationApp {
         });
     }
 
-    private void writeToFile(String filePath, String content) {
+    // Append the shown results to the file, one row at a time
+    private void writeToFile(String filePath) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
-            writer.write(content);
+            for (int i = 0; i < results.getSize(); i++) {
+                if (i > 0) writer.newLine();
+                writer.write(results.getElementAt(i));
+            }
             writer.newLine();
             writer.newLine();
         } catch (IOException e) {
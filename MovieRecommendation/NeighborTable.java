@@ -0,0 +1,281 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// The K most similar users of every user (or movies of every movie), by cosine similarity
+// of their rating vectors among those sharing at least BipartiteGraph.MIN_COMMON_MOVIES
+// ratings. Computed once for a RatingMatrix, in blocks of rows on the common fork-join pool,
+// and saved as a binary file tagged with the matrix fingerprint, so recommendMovies only has
+// to look neighbors up.
+public class NeighborTable {
+
+    public static final int DEFAULT_K = 50;
+
+    private static final int MAGIC = 0x4e424854; // "NBHT"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * 2 + 8 + 4 * 4;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final int BLOCK = 256;
+
+    private final long fingerprint;
+    private final boolean movieSide;
+    private final int k;
+    private final int[] start;       // neighbors of row u are start[u] .. start[u + 1] - 1
+    private final int[] neighbor;    // dense user (or movie) index, most similar first
+    private final float[] similarity;
+    private final int[] userIds;     // ids behind the dense indices when the table was computed
+    private final int[] movieIds;
+    private volatile IndexMap lastMap;
+
+    private NeighborTable(long fingerprint, boolean movieSide, int k, int[] start, int[] neighbor, float[] similarity,
+                          RatingMatrix r) {
+        this.fingerprint = fingerprint;
+        this.movieSide = movieSide;
+        this.k = k;
+        this.start = start;
+        this.neighbor = neighbor;
+        this.similarity = similarity;
+        this.userIds = r.userIds;
+        this.movieIds = r.movieIds;
+    }
+
+    public static String tableFileFor(String ratingsFile, boolean movieSide) {
+        return ratingsFile + (movieSide ? ".itemneighbors" : ".neighbors");
+    }
+
+    // Load the table saved for these ratings, or compute and save it
+    public static NeighborTable open(String tableFile, RatingMatrix r, boolean movieSide, int k) throws IOException {
+        NeighborTable table = load(tableFile, r);
+        if (table != null && table.k == k && table.movieSide == movieSide) return table;
+        table = compute(r, movieSide, k);
+        try {
+            table.write(tableFile);
+        } catch (IOException e) {
+            System.err.println("Could not write neighbor table: " + e.getMessage());
+        }
+        return table;
+    }
+
+    // Indices of the ratings the table was computed from translated to r, a later version of
+    // them; the last translation is kept, as every query of one snapshot needs the same one
+    public IndexMap mapTo(RatingMatrix r) {
+        IndexMap map = lastMap;
+        if (map == null || !map.isFor(r)) {
+            map = new IndexMap(userIds, movieIds, r);
+            lastMap = map;
+        }
+        return map;
+    }
+
+    public boolean isMovieSide() {
+        return movieSide;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public int neighborStart(int u) {
+        return start[u];
+    }
+
+    public int neighborEnd(int u) {
+        return start[u + 1];
+    }
+
+    public int neighbor(int i) {
+        return neighbor[i];
+    }
+
+    public float similarity(int i) {
+        return similarity[i];
+    }
+
+    // Rows are users (or movies with movieSide); the other side of the matrix serves as the
+    // inverted index that finds every row sharing a rating with the current one
+    public static NeighborTable compute(RatingMatrix r, boolean movieSide, int k) {
+        int[] rowStart = movieSide ? r.movieStart : r.userStart;
+        int[] rowCol = movieSide ? r.movieUser : r.userMovie;
+        byte[] rowVal = movieSide ? r.movieRating : r.userRating;
+        int[] colStart = movieSide ? r.userStart : r.movieStart;
+        int[] colRow = movieSide ? r.userMovie : r.movieUser;
+        byte[] colVal = movieSide ? r.userRating : r.movieRating;
+        int rows = rowStart.length - 1;
+
+        float[] norm = new float[rows];
+        for (int u = 0; u < rows; u++) {
+            double sum = 0;
+            for (int i = rowStart[u]; i < rowStart[u + 1]; i++) {
+                sum += rowVal[i] * rowVal[i];
+            }
+            norm[u] = (float) Math.sqrt(sum);
+        }
+
+        int[][] rowNeighbors = new int[rows][];
+        float[][] rowSimilarities = new float[rows][];
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(rows, k));
+        IntStream.range(0, (rows + BLOCK - 1) / BLOCK).parallel().forEach(block -> {
+            Scratch s = scratch.get();
+            for (int u = block * BLOCK; u < Math.min(rows, (block + 1) * BLOCK); u++) {
+                s.topNeighbors(rowStart, rowCol, rowVal, colStart, colRow, colVal, norm, u);
+                rowNeighbors[u] = Arrays.copyOf(s.bestRow, s.bestCount);
+                rowSimilarities[u] = Arrays.copyOf(s.bestSimilarity, s.bestCount);
+            }
+        });
+
+        int[] start = new int[rows + 1];
+        for (int u = 0; u < rows; u++) start[u + 1] = start[u] + rowNeighbors[u].length;
+        int[] neighbor = new int[start[rows]];
+        float[] similarity = new float[start[rows]];
+        for (int u = 0; u < rows; u++) {
+            System.arraycopy(rowNeighbors[u], 0, neighbor, start[u], rowNeighbors[u].length);
+            System.arraycopy(rowSimilarities[u], 0, similarity, start[u], rowSimilarities[u].length);
+        }
+        return new NeighborTable(r.fingerprint(), movieSide, k, start, neighbor, similarity, r);
+    }
+
+    // Per-thread accumulators: dot products and common counts by row, the rows touched,
+    // and the best k candidates so far
+    private static final class Scratch {
+        final float[] dot;
+        final int[] common;
+        int[] touched = new int[256];
+        final TopN top;
+        final int[] bestRow;
+        final float[] bestSimilarity;
+        int bestCount;
+
+        Scratch(int rows, int k) {
+            dot = new float[rows];
+            common = new int[rows];
+            top = new TopN(k);
+            bestRow = new int[k];
+            bestSimilarity = new float[k];
+        }
+
+        void topNeighbors(int[] rowStart, int[] rowCol, byte[] rowVal, int[] colStart, int[] colRow, byte[] colVal,
+                          float[] norm, int u) {
+            int touchedCount = 0;
+            for (int i = rowStart[u]; i < rowStart[u + 1]; i++) {
+                int m = rowCol[i];
+                int rating = rowVal[i];
+                for (int j = colStart[m]; j < colStart[m + 1]; j++) {
+                    int v = colRow[j];
+                    if (common[v]++ == 0) {
+                        if (touchedCount == touched.length) touched = Arrays.copyOf(touched, touchedCount * 2);
+                        touched[touchedCount++] = v;
+                    }
+                    dot[v] += rating * colVal[j];
+                }
+            }
+
+            for (int t = 0; t < touchedCount; t++) {
+                int v = touched[t];
+                if (v != u && common[v] >= MovieRecommendationApp.BipartiteGraph.MIN_COMMON_MOVIES && norm[v] > 0) {
+                    top.offer(v, dot[v] / (norm[u] * norm[v]));
+                }
+                dot[v] = 0;
+                common[v] = 0;
+            }
+            bestCount = top.drain(bestRow, bestSimilarity);
+        }
+    }
+
+    // The saved table if it was computed from these ratings, else null. A truncated or
+    // damaged file also gives null, so open recomputes the table.
+    public static NeighborTable load(String tableFile, RatingMatrix r) throws IOException {
+        Path path = Paths.get(tableFile);
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_BYTES) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            long fingerprint = buf.getLong();
+            boolean movieSide = buf.getInt() != 0;
+            int k = buf.getInt();
+            int rows = buf.getInt();
+            int entries = buf.getInt();
+            if (fingerprint != r.fingerprint()
+                    || rows != (movieSide ? r.getNumberOfMovies() : r.getNumberOfUsers())) return null;
+            if (k < 0 || entries < 0 || channel.size() != HEADER_BYTES + 4L * (rows + 1) + 8L * entries) return null;
+
+            int[] start = new int[rows + 1];
+            buf.asIntBuffer().get(start);
+            buf.position(buf.position() + 4 * start.length);
+            int[] neighbor = new int[entries];
+            buf.asIntBuffer().get(neighbor);
+            buf.position(buf.position() + 4 * entries);
+            float[] similarity = new float[entries];
+            buf.asFloatBuffer().get(similarity);
+
+            if (start[0] != 0 || start[rows] != entries) return null;
+            for (int u = 0; u < rows; u++) {
+                if (start[u] > start[u + 1] || start[u + 1] - start[u] > k) return null;
+            }
+            for (int v : neighbor) {
+                if (v < 0 || v >= rows) return null;
+            }
+            return new NeighborTable(fingerprint, movieSide, k, start, neighbor, similarity, r);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    public void write(String tableFile) throws IOException {
+        // Write next to the target and rename, so an interrupted run never leaves a torn table
+        Path target = Paths.get(tableFile);
+        Path temp = Paths.get(tableFile + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION).putLong(fingerprint);
+            buf.putInt(movieSide ? 1 : 0).putInt(k).putInt(start.length - 1).putInt(neighbor.length);
+            for (int value : start) {
+                if (buf.remaining() < 4) flush(channel, buf);
+                buf.putInt(value);
+            }
+            for (int value : neighbor) {
+                if (buf.remaining() < 4) flush(channel, buf);
+                buf.putInt(value);
+            }
+            for (float value : similarity) {
+                if (buf.remaining() < 4) flush(channel, buf);
+                buf.putFloat(value);
+            }
+            flush(channel, buf);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    // Precompute both tables offline (e.g. nightly): java NeighborTable <ratings file> <movies file> [k]
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java NeighborTable <ratings file> <movies file> [k]");
+            return;
+        }
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_K;
+        MovieRecommendationApp app = new MovieRecommendationApp(args[0], args[1], false);
+        RatingMatrix r = app.getGraph().getRatings();
+        for (boolean movieSide : new boolean[] {false, true}) {
+            long startTime = System.currentTimeMillis();
+            NeighborTable table = compute(r, movieSide, k);
+            table.write(tableFileFor(args[0], movieSide));
+            System.out.println("Neighbors of " + (movieSide ? r.getNumberOfMovies() + " movies" : r.getNumberOfUsers() + " users")
+                    + " computed in " + (System.currentTimeMillis() - startTime) + " ms, written to "
+                    + tableFileFor(args[0], movieSide));
+        }
+    }
+}
@@ -0,0 +1,389 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Loads the ratings file and the movie titles. The ratings file is cut into chunks at line
+// starts that are mapped and parsed byte by byte in parallel on the common fork-join pool;
+// the titles are parsed as CSV with quoted fields ("American President, The (1995)"). The
+// result is saved as one binary snapshot next to the ratings file, tagged with the size and
+// modification time of both text files, which later startups map and bulk-copy instead.
+public class RatingLoader {
+
+    private static final int MAGIC = 0x524d534e; // "RMSN"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * 2 + 8 * 4 + 4 * 5;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final int CHUNK_BYTES = 8 << 20;
+
+    final RatingMatrix ratings;
+    final Map<Integer, String> titles;
+
+    RatingLoader(RatingMatrix ratings, Map<Integer, String> titles) {
+        this.ratings = ratings;
+        this.titles = titles;
+    }
+
+    public static String snapshotFileFor(String ratingsFile) {
+        return ratingsFile + ".snapshot";
+    }
+
+    // Load the snapshot if it is current, or parse both files and save a new one
+    public static RatingLoader open(String ratingsFile, String moviesFile) throws IOException {
+        String snapshotFile = snapshotFileFor(ratingsFile);
+        RatingLoader loaded = loadSnapshot(snapshotFile, ratingsFile, moviesFile);
+        if (loaded != null) return loaded;
+        loaded = new RatingLoader(parseRatings(Paths.get(ratingsFile)), parseTitles(Paths.get(moviesFile)));
+        try {
+            loaded.writeSnapshot(snapshotFile, ratingsFile, moviesFile);
+        } catch (IOException e) {
+            System.err.println("Could not write ratings snapshot: " + e.getMessage());
+        }
+        return loaded;
+    }
+
+    // Parse "userId<sep>movieId<sep>rating..." lines, where sep is a tab or a comma and the
+    // rating is rounded to whole stars (half up). Lines not starting with a digit (the header)
+    // are skipped. Later lines win over earlier ones for the same user and movie.
+    public static RatingMatrix parseRatings(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(0L);
+            for (long pos = CHUNK_BYTES; pos < size; pos += CHUNK_BYTES) {
+                pos = nextLineStart(channel, pos, size);
+                if (pos < size) bounds.add(pos);
+            }
+            bounds.add(size);
+
+            RatingChunk[] chunks = new RatingChunk[bounds.size() - 1];
+            try {
+                IntStream.range(0, chunks.length).parallel().forEach(i -> {
+                    try {
+                        long from = bounds.get(i);
+                        chunks[i] = new RatingChunk(channel.map(FileChannel.MapMode.READ_ONLY, from,
+                                bounds.get(i + 1) - from));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+
+            int count = 0;
+            for (RatingChunk chunk : chunks) count += chunk.count;
+            int[] users = new int[count];
+            int[] movies = new int[count];
+            byte[] ratings = new byte[count];
+            int n = 0;
+            for (RatingChunk chunk : chunks) {
+                System.arraycopy(chunk.users, 0, users, n, chunk.count);
+                System.arraycopy(chunk.movies, 0, movies, n, chunk.count);
+                System.arraycopy(chunk.ratings, 0, ratings, n, chunk.count);
+                n += chunk.count;
+            }
+            return RatingMatrix.build(users, movies, ratings, count);
+        }
+    }
+
+    // First position at or after pos that follows a newline, or size
+    private static long nextLineStart(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(4096);
+        for (long at = pos - 1; at < size; at += buf.limit()) {
+            buf.clear();
+            if (channel.read(buf, at) <= 0) break;
+            buf.flip();
+            for (int i = 0; i < buf.limit(); i++) {
+                if (buf.get(i) == '\n') return at + i + 1;
+            }
+        }
+        return size;
+    }
+
+    // The ratings of one chunk of whole lines, a mapped part of the ratings file or a block
+    // read from the rating log
+    static final class RatingChunk {
+        final ByteBuffer buf;
+        final int limit;
+        int pos;
+        int[] users;
+        int[] movies;
+        byte[] ratings;
+        int count;
+
+        RatingChunk(ByteBuffer buf) {
+            this.buf = buf;
+            this.limit = buf.limit();
+            int estimate = limit / 16 + 16; // a MovieLens line is 20-30 bytes
+            users = new int[estimate];
+            movies = new int[estimate];
+            ratings = new byte[estimate];
+            parse();
+        }
+
+        private void parse() {
+            while (pos < limit) {
+                int user = number();
+                int movie = user < 0 || !separator() ? -1 : number();
+                int rating = movie < 0 || !separator() ? -1 : number();
+                if (rating >= 0) {
+                    // Round half up on the first decimal, as Math.round does
+                    if (pos + 1 < limit && buf.get(pos) == '.' && buf.get(pos + 1) >= '5') rating++;
+                    add(user, movie, rating);
+                }
+                while (pos < limit && buf.get(pos++) != '\n') {
+                    // skip the rest of the line (timestamp, '\r', or a malformed line)
+                }
+            }
+        }
+
+        // Unsigned decimal at pos, or -1 if there is no digit
+        private int number() {
+            int start = pos;
+            int value = 0;
+            while (pos < limit) {
+                int digit = buf.get(pos) - '0';
+                if (digit < 0 || digit > 9) break;
+                value = value * 10 + digit;
+                pos++;
+            }
+            return pos == start ? -1 : value;
+        }
+
+        private boolean separator() {
+            if (pos < limit && (buf.get(pos) == '\t' || buf.get(pos) == ',')) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void add(int user, int movie, int rating) {
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+                movies = Arrays.copyOf(movies, count * 2);
+                ratings = Arrays.copyOf(ratings, count * 2);
+            }
+            users[count] = user;
+            movies[count] = movie;
+            ratings[count] = (byte) rating;
+            count++;
+        }
+    }
+
+    // Parse "movieId,title,genres" lines as UTF-8 CSV. A quoted title may contain commas,
+    // doubled quotes and line breaks; surrounding spaces are trimmed. The file is small
+    // (a few MB for 60k titles), so it is parsed in one pass rather than in chunks.
+    public static Map<Integer, String> parseTitles(Path file) throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        Map<Integer, String> titles = new HashMap<>();
+        byte[] field = new byte[256];
+        int pos = 0;
+        while (pos < bytes.length) {
+            int movieId = 0;
+            int start = pos;
+            while (pos < bytes.length && bytes[pos] >= '0' && bytes[pos] <= '9') {
+                movieId = movieId * 10 + bytes[pos++] - '0';
+            }
+            if (pos > start && pos < bytes.length && bytes[pos] == ',') {
+                pos++;
+                int length = 0;
+                if (pos < bytes.length && bytes[pos] == '"') {
+                    pos++;
+                    while (pos < bytes.length) {
+                        byte b = bytes[pos++];
+                        if (b == '"') {
+                            if (pos < bytes.length && bytes[pos] == '"') {
+                                pos++;
+                            } else {
+                                break;
+                            }
+                        }
+                        if (length == field.length) field = Arrays.copyOf(field, length * 2);
+                        field[length++] = b;
+                    }
+                } else {
+                    while (pos < bytes.length && bytes[pos] != ',' && bytes[pos] != '\n' && bytes[pos] != '\r') {
+                        if (length == field.length) field = Arrays.copyOf(field, length * 2);
+                        field[length++] = bytes[pos++];
+                    }
+                }
+                titles.put(movieId, new String(field, 0, length, StandardCharsets.UTF_8).trim());
+            }
+            while (pos < bytes.length && bytes[pos++] != '\n') {
+                // skip the genres, or the header line
+            }
+        }
+        return titles;
+    }
+
+    // The saved snapshot if both text files are unchanged since it was written, else null.
+    // Counts are checked against the file length and offsets against the arrays they index.
+    static RatingLoader loadSnapshot(String snapshotFile, String ratingsFile, String moviesFile) throws IOException {
+        Path path = Paths.get(snapshotFile);
+        Path ratingsPath = Paths.get(ratingsFile);
+        Path moviesPath = Paths.get(moviesFile);
+        if (!Files.isRegularFile(path) || Files.size(path) < HEADER_BYTES || Files.size(path) > Integer.MAX_VALUE
+                || !Files.isRegularFile(ratingsPath) || !Files.isRegularFile(moviesPath)) return null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt() != MAGIC || buf.getInt() != VERSION) return null;
+            if (buf.getLong() != Files.size(ratingsPath)
+                    || buf.getLong() != Files.getLastModifiedTime(ratingsPath).toMillis()
+                    || buf.getLong() != Files.size(moviesPath)
+                    || buf.getLong() != Files.getLastModifiedTime(moviesPath).toMillis()) return null;
+            int U = buf.getInt();
+            int M = buf.getInt();
+            int N = buf.getInt();
+            int T = buf.getInt();
+            int titleBytes = buf.getInt();
+            if (U < 0 || M < 0 || N < 0 || T < 0 || titleBytes < 0) return null;
+            long expected = HEADER_BYTES + 4L * (2L * U + 2L * M + 2L * N + 2L * T + 3) + 2L * N + titleBytes;
+            if (expected != channel.size()) return null;
+
+            int[] userIds = ints(buf, U);
+            int[] movieIds = ints(buf, M);
+            int[] userStart = ints(buf, U + 1);
+            int[] userMovie = ints(buf, N);
+            int[] movieStart = ints(buf, M + 1);
+            int[] movieUser = ints(buf, N);
+            int[] titleIds = ints(buf, T);
+            int[] titleStart = ints(buf, T + 1);
+            byte[] userRating = new byte[N];
+            buf.get(userRating);
+            byte[] movieRating = new byte[N];
+            buf.get(movieRating);
+            byte[] text = new byte[titleBytes];
+            buf.get(text);
+
+            if (!isOffsets(userStart, N) || !isOffsets(movieStart, N) || !isOffsets(titleStart, titleBytes)
+                    || !inRange(userMovie, M) || !inRange(movieUser, U)) return null;
+
+            Map<Integer, String> titles = new HashMap<>(T * 2);
+            for (int i = 0; i < T; i++) {
+                titles.put(titleIds[i], new String(text, titleStart[i], titleStart[i + 1] - titleStart[i],
+                        StandardCharsets.UTF_8));
+            }
+            return new RatingLoader(new RatingMatrix(userIds, movieIds, userStart, userMovie, userRating,
+                    movieStart, movieUser, movieRating), titles);
+        } catch (RuntimeException e) {
+            // A damaged snapshot is treated like a stale one: parse the text files again
+            return null;
+        }
+    }
+
+    // Starts at 0, never decreases and ends at length
+    private static boolean isOffsets(int[] start, int length) {
+        if (start[0] != 0 || start[start.length - 1] != length) return false;
+        for (int i = 1; i < start.length; i++) {
+            if (start[i - 1] > start[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean inRange(int[] values, int limit) {
+        for (int value : values) {
+            if (value < 0 || value >= limit) return false;
+        }
+        return true;
+    }
+
+    private static int[] ints(MappedByteBuffer buf, int length) {
+        int[] values = new int[length];
+        buf.asIntBuffer().get(values);
+        buf.position(buf.position() + 4 * length);
+        return values;
+    }
+
+    void writeSnapshot(String snapshotFile, String ratingsFile, String moviesFile) throws IOException {
+        int T = titles.size();
+        int[] titleIds = new int[T];
+        int[] titleStart = new int[T + 1];
+        byte[][] encoded = new byte[T][];
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : titles.entrySet()) {
+            titleIds[i] = entry.getKey();
+            encoded[i] = entry.getValue().getBytes(StandardCharsets.UTF_8);
+            titleStart[i + 1] = titleStart[i] + encoded[i].length;
+            i++;
+        }
+
+        // Write next to the target and rename, so an interrupted run never leaves a torn snapshot
+        Path target = Paths.get(snapshotFile);
+        Path temp = Paths.get(snapshotFile + ".tmp");
+        Path ratingsPath = Paths.get(ratingsFile);
+        Path moviesPath = Paths.get(moviesFile);
+        RatingMatrix r = ratings;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putInt(MAGIC).putInt(VERSION);
+            buf.putLong(Files.size(ratingsPath)).putLong(Files.getLastModifiedTime(ratingsPath).toMillis());
+            buf.putLong(Files.size(moviesPath)).putLong(Files.getLastModifiedTime(moviesPath).toMillis());
+            buf.putInt(r.getNumberOfUsers()).putInt(r.getNumberOfMovies()).putInt(r.getNumberOfRatings());
+            buf.putInt(T).putInt(titleStart[T]);
+            for (int[] values : new int[][] {r.userIds, r.movieIds, r.userStart, r.userMovie,
+                    r.movieStart, r.movieUser, titleIds, titleStart}) {
+                for (int value : values) {
+                    if (buf.remaining() < 4) flush(channel, buf);
+                    buf.putInt(value);
+                }
+            }
+            putBytes(channel, buf, r.userRating);
+            putBytes(channel, buf, r.movieRating);
+            for (byte[] title : encoded) {
+                putBytes(channel, buf, title);
+            }
+            flush(channel, buf);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putBytes(FileChannel channel, ByteBuffer buf, byte[] bytes) throws IOException {
+        for (int off = 0; off < bytes.length; ) {
+            if (!buf.hasRemaining()) flush(channel, buf);
+            int length = Math.min(buf.remaining(), bytes.length - off);
+            buf.put(bytes, off, length);
+            off += length;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buf) throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+        buf.clear();
+    }
+
+    // Parse both files, write the snapshot and time a load from it:
+    // java RatingLoader <ratings file> <movies file>
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: java RatingLoader <ratings file> <movies file>");
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        RatingLoader parsed = new RatingLoader(parseRatings(Paths.get(args[0])), parseTitles(Paths.get(args[1])));
+        long parseTime = System.currentTimeMillis() - startTime;
+        parsed.writeSnapshot(snapshotFileFor(args[0]), args[0], args[1]);
+        startTime = System.currentTimeMillis();
+        RatingLoader loaded = loadSnapshot(snapshotFileFor(args[0]), args[0], args[1]);
+        long loadTime = System.currentTimeMillis() - startTime;
+        System.out.println(parsed.ratings.getNumberOfRatings() + " ratings and " + parsed.titles.size()
+                + " titles parsed in " + parseTime + " ms, loaded from the snapshot in " + loadTime + " ms"
+                + (loaded != null && loaded.ratings.fingerprint() == parsed.ratings.fingerprint() ? "" : " (MISMATCH)"));
+    }
+}
@@ -0,0 +1,106 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Append-only log of new ratings, one "userId<TAB>movieId<TAB>rating" line each as in the
+// ratings file (commas work too), tailed while the app runs. Each poll adds the complete
+// lines appended since the previous one and then merges them as one batch, so a stream of
+// ratings costs one merge per poll rather than one per rating. The log is read from the
+// start on every launch, which replays the ratings of earlier sessions; a partly written
+// last line waits for the next poll.
+public class RatingLog implements AutoCloseable {
+
+    private final Path file;
+    private final MovieRecommendationApp.BipartiteGraph graph;
+    private ScheduledExecutorService poller;
+    private long offset;
+    private long added;
+
+    public RatingLog(Path file, MovieRecommendationApp.BipartiteGraph graph) {
+        this.file = file;
+        this.graph = graph;
+    }
+
+    // The log next to a ratings file: javaproject.txt -> javaproject.txt.log
+    public static Path logFileFor(String ratingsFile) {
+        return Paths.get(ratingsFile + ".log");
+    }
+
+    // Poll now and then every intervalMillis on a daemon thread
+    public synchronized RatingLog start(long intervalMillis) {
+        if (poller == null) {
+            poller = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "rating-log");
+                thread.setDaemon(true);
+                return thread;
+            });
+            poller.scheduleWithFixedDelay(() -> {
+                try {
+                    poll();
+                } catch (IOException e) {
+                    System.err.println("Error reading rating log: " + e.getMessage());
+                }
+            }, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    // Add the ratings appended since the last poll; returns how many there were. A missing
+    // log counts as empty, and one that shrank (replaced or truncated) is read from the start.
+    // Lines are parsed like the ratings file, so tabs and commas both separate the fields.
+    public synchronized int poll() throws IOException {
+        if (!Files.exists(file)) return 0;
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < offset) offset = 0;
+            byte[] bytes = new byte[1 << 16];
+            long position = offset; // file position of bytes[0]
+            int filled = 0;
+            while (true) {
+                int read = channel.read(ByteBuffer.wrap(bytes, filled, bytes.length - filled), position + filled);
+                if (read <= 0) break;
+                filled += read;
+                int lineEnd = filled;
+                while (lineEnd > 0 && bytes[lineEnd - 1] != '\n') lineEnd--;
+                if (lineEnd > 0) {
+                    RatingLoader.RatingChunk chunk = new RatingLoader.RatingChunk(ByteBuffer.wrap(bytes, 0, lineEnd));
+                    for (int i = 0; i < chunk.count; i++) {
+                        graph.addRating(chunk.users[i], chunk.movies[i], chunk.ratings[i]);
+                    }
+                    count += chunk.count;
+                }
+                System.arraycopy(bytes, lineEnd, bytes, 0, filled - lineEnd);
+                position += lineEnd;
+                filled -= lineEnd;
+                if (filled == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            offset = position;
+        }
+        if (count > 0) {
+            added += count;
+            graph.getRatings(); // publish the whole batch in one merge
+        }
+        return count;
+    }
+
+    // Ratings added from the log so far
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (poller != null) {
+            poller.shutdownNow();
+            poller = null;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+import java.util.Arrays;
+
+// Immutable ratings in compressed sparse row form, indexed both ways. Users and movies are
+// renumbered densely (their ids are kept sorted in userIds/movieIds); the movies of user u
+// are userMovie[userStart[u] .. userStart[u + 1] - 1], sorted, with the matching ratings in
+// userRating, and the movie side mirrors this except that a movie's users are sorted by
+// rating first, so the raters with a given number of stars are one contiguous range
+// (starStart). One rating costs 5 bytes per direction.
+public class RatingMatrix {
+
+    private static final int DIRECT_LIMIT = 1 << 26;
+    private static final int MAX_STARS = 5;
+    private static final int STAR_SLOTS = MAX_STARS + 2; // 0..5 stars, then anything else
+
+    static final RatingMatrix EMPTY = build(new int[0], new int[0], new byte[0], 0);
+
+    final int[] userIds;
+    final int[] movieIds;
+    final int[] userStart;
+    final int[] userMovie;
+    final byte[] userRating;
+    final int[] movieStart;
+    final int[] movieUser;
+    final byte[] movieRating;
+    final int[] starStart; // raters of movie m with s stars start at movieUser[starStart[m * STAR_SLOTS + s]]
+    private long fingerprint;
+
+    // From saved arrays, whose movie rows must already be sorted by stars
+    RatingMatrix(int[] userIds, int[] movieIds, int[] userStart, int[] userMovie, byte[] userRating,
+                 int[] movieStart, int[] movieUser, byte[] movieRating) {
+        this(userIds, movieIds, userStart, userMovie, userRating, movieStart, movieUser, movieRating,
+                starStarts(movieStart, movieRating));
+    }
+
+    private RatingMatrix(int[] userIds, int[] movieIds, int[] userStart, int[] userMovie, byte[] userRating,
+                         int[] movieStart, int[] movieUser, byte[] movieRating, int[] starStart) {
+        this.userIds = userIds;
+        this.movieIds = movieIds;
+        this.userStart = userStart;
+        this.userMovie = userMovie;
+        this.userRating = userRating;
+        this.movieStart = movieStart;
+        this.movieUser = movieUser;
+        this.movieRating = movieRating;
+        this.starStart = starStart;
+    }
+
+    // Star ranges of movie rows that are already sorted by star slot, found by binary search.
+    // Ranges never run backwards, so even a row out of order cannot give an invalid range.
+    private static int[] starStarts(int[] movieStart, byte[] movieRating) {
+        int M = movieStart.length - 1;
+        int[] starStart = new int[M * STAR_SLOTS + 1];
+        for (int m = 0; m < M; m++) {
+            int from = movieStart[m];
+            int to = movieStart[m + 1];
+            starStart[m * STAR_SLOTS] = from;
+            for (int s = 1; s < STAR_SLOTS; s++) {
+                // First entry of the row with a slot of at least s
+                int low = starStart[m * STAR_SLOTS + s - 1], high = to;
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (slot(movieRating[mid]) < s) {
+                        low = mid + 1;
+                    } else {
+                        high = mid;
+                    }
+                }
+                starStart[m * STAR_SLOTS + s] = low;
+            }
+        }
+        starStart[M * STAR_SLOTS] = movieStart[M];
+        return starStart;
+    }
+
+    private static int slot(byte rating) {
+        return rating >= 0 && rating <= MAX_STARS ? rating : MAX_STARS + 1;
+    }
+
+    // Build from the first count entries of the parallel arrays; when a user rated the
+    // same movie more than once the later rating wins, as with repeated Map.put calls
+    public static RatingMatrix build(int[] users, int[] movies, byte[] ratings, int count) {
+        int[] userOf = new int[count];
+        int[] userIds = denseIndex(users, count, userOf);
+        int[] movieOf = new int[count];
+        int[] movieIds = denseIndex(movies, count, movieOf);
+        int U = userIds.length;
+
+        // Stable counting sort of the entries by dense user index
+        int[] userStart = new int[U + 1];
+        for (int i = 0; i < count; i++) {
+            userStart[userOf[i] + 1]++;
+        }
+        for (int u = 0; u < U; u++) userStart[u + 1] += userStart[u];
+        int[] next = Arrays.copyOf(userStart, U);
+        long[] keys = new long[count]; // movie index << 32 | input position, sorted per user
+        for (int i = 0; i < count; i++) {
+            keys[next[userOf[i]]++] = (long) movieOf[i] << 32 | i;
+        }
+        userOf = null;
+        movieOf = null;
+
+        // Sort each user's row by movie and keep the last of any repeated movie
+        int[] userMovie = new int[count];
+        byte[] userRating = new byte[count];
+        int n = 0;
+        for (int u = 0; u < U; u++) {
+            int from = userStart[u], to = userStart[u + 1];
+            Arrays.sort(keys, from, to);
+            userStart[u] = n;
+            for (int k = from; k < to; k++) {
+                int movie = (int) (keys[k] >>> 32);
+                if (k + 1 < to && (int) (keys[k + 1] >>> 32) == movie) continue;
+                userMovie[n] = movie;
+                userRating[n] = ratings[(int) keys[k]];
+                n++;
+            }
+        }
+        userStart[U] = n;
+        userMovie = Arrays.copyOf(userMovie, n);
+        userRating = Arrays.copyOf(userRating, n);
+        return withMovieSide(userIds, movieIds, userStart, userMovie, userRating);
+    }
+
+    // Complete a matrix from its user rows with one counting sort by (movie, stars). Walking
+    // users in order keeps the users of every star range sorted.
+    private static RatingMatrix withMovieSide(int[] userIds, int[] movieIds, int[] userStart, int[] userMovie,
+                                              byte[] userRating) {
+        int U = userIds.length;
+        int M = movieIds.length;
+        int n = userMovie.length;
+        int[] starStart = new int[M * STAR_SLOTS + 1];
+        for (int k = 0; k < n; k++) starStart[userMovie[k] * STAR_SLOTS + slot(userRating[k]) + 1]++;
+        for (int b = 0; b < M * STAR_SLOTS; b++) starStart[b + 1] += starStart[b];
+        int[] movieUser = new int[n];
+        byte[] movieRating = new byte[n];
+        int[] next = Arrays.copyOf(starStart, M * STAR_SLOTS);
+        for (int u = 0; u < U; u++) {
+            for (int k = userStart[u]; k < userStart[u + 1]; k++) {
+                int at = next[userMovie[k] * STAR_SLOTS + slot(userRating[k])]++;
+                movieUser[at] = u;
+                movieRating[at] = userRating[k];
+            }
+        }
+        int[] movieStart = new int[M + 1];
+        for (int m = 0; m <= M; m++) movieStart[m] = starStart[m * STAR_SLOTS];
+        return new RatingMatrix(userIds, movieIds, userStart, userMovie, userRating,
+                movieStart, movieUser, movieRating, starStart);
+    }
+
+    // Sorted distinct values of the first count entries; index[i] receives the position of
+    // values[i] among them. Ids up to DIRECT_LIMIT go through a lookup table instead of a sort.
+    private static int[] denseIndex(int[] values, int count, int[] index) {
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, values[i]);
+            max = Math.max(max, values[i]);
+        }
+        if (count > 0 && min >= 0 && max < DIRECT_LIMIT) {
+            int[] table = new int[max + 1];
+            for (int i = 0; i < count; i++) table[values[i]] = 1;
+            int n = 0;
+            for (int id = 0; id <= max; id++) {
+                if (table[id] != 0) table[id] = ++n;
+            }
+            int[] ids = new int[n];
+            for (int id = 0; id <= max; id++) {
+                if (table[id] != 0) ids[table[id] - 1] = id;
+            }
+            for (int i = 0; i < count; i++) index[i] = table[values[i]] - 1;
+            return ids;
+        }
+
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n == 0 || sorted[n - 1] != sorted[i]) sorted[n++] = sorted[i];
+        }
+        int[] ids = Arrays.copyOf(sorted, n);
+        for (int i = 0; i < count; i++) index[i] = Arrays.binarySearch(ids, values[i]);
+        return ids;
+    }
+
+    // A new matrix holding these ratings plus the given ones, which win over existing ratings.
+    // The new ratings are built into a small matrix of their own and merged row by row, so
+    // adding a batch costs one linear pass over the existing ratings and no sorting.
+    public RatingMatrix withRatings(int[] users, int[] movies, byte[] ratings, int count) {
+        if (count == 0) return this;
+        RatingMatrix added = build(users, movies, ratings, count);
+        if (isEmpty()) return added;
+        int[] allUserIds = union(userIds, added.userIds);
+        int[] allMovieIds = union(movieIds, added.movieIds);
+        int[] oldMovie = positions(movieIds, allMovieIds);
+        int[] newMovie = positions(added.movieIds, allMovieIds);
+
+        int U = allUserIds.length;
+        int[] start = new int[U + 1];
+        int[] rowMovie = new int[getNumberOfRatings() + added.getNumberOfRatings()];
+        byte[] rowRating = new byte[rowMovie.length];
+        int n = 0;
+        int a = 0, b = 0; // next user of this matrix and of the added one
+        for (int u = 0; u < U; u++) {
+            start[u] = n;
+            int i = 0, iEnd = 0, j = 0, jEnd = 0;
+            if (a < userIds.length && userIds[a] == allUserIds[u]) {
+                i = userStart[a];
+                iEnd = userStart[++a];
+            }
+            if (b < added.userIds.length && added.userIds[b] == allUserIds[u]) {
+                j = added.userStart[b];
+                jEnd = added.userStart[++b];
+            }
+            while (i < iEnd || j < jEnd) {
+                int mi = i < iEnd ? oldMovie[userMovie[i]] : Integer.MAX_VALUE;
+                int mj = j < jEnd ? newMovie[added.userMovie[j]] : Integer.MAX_VALUE;
+                if (mj <= mi) {
+                    rowMovie[n] = mj;
+                    rowRating[n++] = added.userRating[j++];
+                    if (mi == mj) i++;
+                } else {
+                    rowMovie[n] = mi;
+                    rowRating[n++] = userRating[i++];
+                }
+            }
+        }
+        start[U] = n;
+        rowMovie = Arrays.copyOf(rowMovie, n);
+        rowRating = Arrays.copyOf(rowRating, n);
+
+        // The movie side is merged the same way, one star range at a time, so the star order
+        // carries over without sorting. An existing rating is dropped when the added matrix
+        // has one for the same user and movie.
+        int[] oldUser = positions(userIds, allUserIds);
+        int[] newUser = positions(added.userIds, allUserIds);
+        int[] addedRow = new int[U];
+        Arrays.fill(addedRow, -1);
+        for (int v = 0; v < newUser.length; v++) addedRow[newUser[v]] = v;
+        int M = allMovieIds.length;
+        int[] allStarStart = new int[M * STAR_SLOTS + 1];
+        int[] colUser = new int[n];
+        byte[] colRating = new byte[n];
+        int c = 0;
+        a = 0;
+        b = 0;
+        for (int m = 0; m < M; m++) {
+            int om = a < movieIds.length && movieIds[a] == allMovieIds[m] ? a++ : -1;
+            int am = b < added.movieIds.length && added.movieIds[b] == allMovieIds[m] ? b++ : -1;
+            for (int s = 0; s < STAR_SLOTS; s++) {
+                allStarStart[m * STAR_SLOTS + s] = c;
+                int i = 0, iEnd = 0, j = 0, jEnd = 0;
+                if (om >= 0) {
+                    i = starStart[om * STAR_SLOTS + s];
+                    iEnd = starStart[om * STAR_SLOTS + s + 1];
+                }
+                if (am >= 0) {
+                    j = added.starStart[am * STAR_SLOTS + s];
+                    jEnd = added.starStart[am * STAR_SLOTS + s + 1];
+                }
+                while (i < iEnd || j < jEnd) {
+                    int ui = i < iEnd ? oldUser[movieUser[i]] : Integer.MAX_VALUE;
+                    int uj = j < jEnd ? newUser[added.movieUser[j]] : Integer.MAX_VALUE;
+                    if (uj < ui) {
+                        colUser[c] = uj;
+                        colRating[c++] = added.movieRating[j++];
+                    } else {
+                        if (am < 0 || addedRow[ui] < 0 || !added.hasRating(addedRow[ui], am)) {
+                            colUser[c] = ui;
+                            colRating[c++] = movieRating[i];
+                        }
+                        i++;
+                    }
+                }
+            }
+        }
+        allStarStart[M * STAR_SLOTS] = c;
+        int[] movieStart = new int[M + 1];
+        for (int m = 0; m <= M; m++) movieStart[m] = allStarStart[m * STAR_SLOTS];
+        return new RatingMatrix(allUserIds, allMovieIds, start, rowMovie, rowRating,
+                movieStart, colUser, colRating, allStarStart);
+    }
+
+    // Sorted union of two sorted id arrays
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                result[n++] = a[i++];
+            } else {
+                if (i < a.length && a[i] == b[j]) i++;
+                result[n++] = b[j++];
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // Position of every id of the sorted subset in the sorted ids
+    private static int[] positions(int[] subset, int[] ids) {
+        int[] result = new int[subset.length];
+        int j = 0;
+        for (int i = 0; i < subset.length; i++) {
+            while (ids[j] != subset[i]) j++;
+            result[i] = j;
+        }
+        return result;
+    }
+
+    public boolean isEmpty() {
+        return userMovie.length == 0;
+    }
+
+    public int getNumberOfUsers() {
+        return userIds.length;
+    }
+
+    public int getNumberOfMovies() {
+        return movieIds.length;
+    }
+
+    public int getNumberOfRatings() {
+        return userMovie.length;
+    }
+
+    // Dense index of a user id, or -1 if the user has no ratings
+    public int userIndex(int userId) {
+        int u = Arrays.binarySearch(userIds, userId);
+        return u >= 0 ? u : -1;
+    }
+
+    public int movieIndex(int movieId) {
+        int m = Arrays.binarySearch(movieIds, movieId);
+        return m >= 0 ? m : -1;
+    }
+
+    public int userId(int u) {
+        return userIds[u];
+    }
+
+    public int movieId(int m) {
+        return movieIds[m];
+    }
+
+    // Hash of all ratings, used to tell whether saved derived data (neighbor tables,
+    // models) was computed from this matrix; computed once on first use
+    public long fingerprint() {
+        long h = fingerprint;
+        if (h == 0) {
+            h = 1;
+            for (int id : userIds) h = h * 31 + id;
+            for (int id : movieIds) h = h * 31 + id;
+            for (int s : userStart) h = h * 31 + s;
+            for (int m : userMovie) h = h * 31 + m;
+            for (byte rating : userRating) h = h * 31 + rating;
+            fingerprint = h == 0 ? 1 : h;
+        }
+        return fingerprint;
+    }
+
+    // Ids of the users who gave movie m (dense index) exactly this many stars, in id order.
+    // Costs the size of the result.
+    public int[] usersWithRating(int m, int stars) {
+        if (stars < 0 || stars > MAX_STARS) return new int[0];
+        int from = starStart[m * STAR_SLOTS + stars];
+        int[] users = new int[starStart[m * STAR_SLOTS + stars + 1] - from];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = userIds[movieUser[from + i]];
+        }
+        return users;
+    }
+
+    // Rating user u gave movie m (dense indices), or 0 if there is none
+    public int rating(int u, int m) {
+        int k = Arrays.binarySearch(userMovie, userStart[u], userStart[u + 1], m);
+        return k >= 0 ? userRating[k] : 0;
+    }
+
+    private boolean hasRating(int u, int m) {
+        return Arrays.binarySearch(userMovie, userStart[u], userStart[u + 1], m) >= 0;
+    }
+}
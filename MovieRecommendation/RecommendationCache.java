@@ -0,0 +1,74 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Size-bounded LRU cache of recommendation lists, one slot per engine for each user.
+// A rating change drops the affected users in O(1) each, and replacing a model clears
+// everything. All methods are synchronized; a hit is two hash lookups. Every invalidation
+// moves the generation on, so a list computed while ratings changed underneath is not stored.
+public class RecommendationCache {
+
+    public static final int DEFAULT_CAPACITY = 10000;
+
+    private final LinkedHashMap<Integer, Map<String, List<String>>> users;
+    private long hits;
+    private long misses;
+    private long generation;
+
+    // capacity is the number of users kept
+    public RecommendationCache(int capacity) {
+        this.users = new LinkedHashMap<Integer, Map<String, List<String>>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, List<String>>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public synchronized List<String> get(String engine, int userId) {
+        Map<String, List<String>> byEngine = users.get(userId);
+        List<String> result = byEngine == null ? null : byEngine.get(engine);
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    // Generation to pass to put; take it before reading the ratings a result is computed from
+    public synchronized long stamp() {
+        return generation;
+    }
+
+    // Store the list unless something was invalidated since stamp was taken
+    public synchronized void put(String engine, int userId, List<String> recommendations, long stamp) {
+        if (stamp != generation) return;
+        users.computeIfAbsent(userId, user -> new HashMap<>(4)).put(engine, recommendations);
+    }
+
+    // Drop the user's lists for every engine
+    public synchronized void invalidate(int userId) {
+        users.remove(userId);
+        generation++;
+    }
+
+    public synchronized void clear() {
+        users.clear();
+        generation++;
+    }
+
+    // Number of users with cached lists
+    public synchronized int size() {
+        return users.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,274 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs the recommender without the GUI, in one of three modes:
+//   --user=<id>         print one user's recommendations
+//   --batch=<file>      score every user id in the file (one per line) and stream
+//                       "userId<TAB>movie - rating<TAB>..." lines to --out=<file> or stdout
+//   (neither)           serve HTTP on localhost:--port (default 8080):
+//                       GET /recommend?user=<id>[&engine=user|item|factors]
+//                       GET /metrics  request counts, p50/p99 latency, cache hit rate,
+//                                     model staleness
+// Requests run on a fixed pool of --threads threads (default: one per core). Ratings
+// appended to the rating log are picked up while serving, and the models rebuilt behind
+// them, as in the GUI.
+public class RecommendationServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BATCH_WINDOW_PER_THREAD = 4;
+
+    private final MovieRecommendationApp app;
+    private final ExecutorService pool;
+    private final LatencyHistogram recommendLatency = new LatencyHistogram();
+    private long errors;
+
+    RecommendationServer(MovieRecommendationApp app, int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be at least 1: " + threads);
+        this.app = app;
+        this.pool = Executors.newFixedThreadPool(threads);
+    }
+
+    // Engine constant for a short name, or null
+    static String engineFor(String name) {
+        switch (name) {
+            case "user":
+                return MovieRecommendationApp.USER_BASED;
+            case "item":
+                return MovieRecommendationApp.ITEM_BASED;
+            case "factors":
+                return MovieRecommendationApp.MATRIX_FACTORIZATION;
+            default:
+                return null;
+        }
+    }
+
+    // Recommendations for one user, timed into the latency histogram
+    List<String> recommend(String engine, int userId) {
+        long startTime = System.nanoTime();
+        try {
+            return app.recommendMovies(engine, userId);
+        } finally {
+            recommendLatency.record(System.nanoTime() - startTime);
+        }
+    }
+
+    HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(pool);
+        server.createContext("/recommend", this::handleRecommend);
+        server.createContext("/metrics", this::handleMetrics);
+        server.start();
+        return server;
+    }
+
+    private void handleRecommend(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            respond(exchange, 405, "GET only\n");
+            return;
+        }
+        Map<String, String> params = queryParams(exchange.getRequestURI().getRawQuery());
+        String engine = engineFor(params.getOrDefault("engine", "user"));
+        int userId;
+        try {
+            userId = Integer.parseInt(params.getOrDefault("user", ""));
+        } catch (NumberFormatException e) {
+            userId = -1;
+        }
+        if (engine == null || userId < 0) {
+            synchronized (this) {
+                errors++;
+            }
+            respond(exchange, 400, "Usage: /recommend?user=<id>[&engine=user|item|factors]\n");
+            return;
+        }
+        List<String> movies;
+        try {
+            movies = recommend(engine, userId);
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                errors++;
+            }
+            respond(exchange, 500, "Recommendation failed: " + e + "\n");
+            return;
+        }
+        StringBuilder body = new StringBuilder();
+        for (String movie : movies) {
+            body.append(movie).append('\n');
+        }
+        respond(exchange, 200, body.toString());
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        respond(exchange, 200, metrics());
+    }
+
+    // One "name value" line per metric
+    String metrics() {
+        RecommendationCache cache = app.getCache();
+        long hits = cache.getHits();
+        long misses = cache.getMisses();
+        double hitRate = hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+        long errorCount;
+        synchronized (this) {
+            errorCount = errors;
+        }
+        return "recommend_requests " + recommendLatency.getCount() + "\n"
+                + "recommend_errors " + errorCount + "\n"
+                + "recommend_latency_p50_us " + recommendLatency.percentile(0.5) + "\n"
+                + "recommend_latency_p99_us " + recommendLatency.percentile(0.99) + "\n"
+                + "recommend_latency_max_us " + recommendLatency.percentile(1) + "\n"
+                + "cache_hits " + hits + "\n"
+                + "cache_misses " + misses + "\n"
+                + "cache_hit_rate " + String.format(Locale.ROOT, "%.4f", hitRate) + "\n"
+                + "cache_users " + cache.size() + "\n"
+                + "ratings " + app.getGraph().getRatings().getNumberOfRatings() + "\n"
+                + "models_ready " + (app.modelsReady() ? 1 : 0) + "\n"
+                + "models_stale " + (app.modelsStale() ? 1 : 0) + "\n"
+                + "models_ratings_behind " + app.modelRatingsBehind() + "\n"
+                + "model_builds " + app.getModelBuilds() + "\n";
+    }
+
+    private static Map<String, String> queryParams(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null) return params;
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Score every user id in the file in parallel, writing lines in input order as they
+    // complete; at most BATCH_WINDOW_PER_THREAD requests per thread are in flight, so memory
+    // stays flat however long the file is. Returns the number of users scored.
+    long batch(String engine, BufferedReader in, Writer out, int threads) throws IOException, InterruptedException {
+        ArrayDeque<Future<String>> window = new ArrayDeque<>();
+        long count = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            int userId;
+            try {
+                userId = Integer.parseInt(line.trim());
+            } catch (NumberFormatException e) {
+                continue; // blank line or header
+            }
+            window.add(pool.submit(() -> userId + "\t" + String.join("\t", recommend(engine, userId)) + "\n"));
+            if (window.size() >= threads * BATCH_WINDOW_PER_THREAD) {
+                out.write(result(window.poll()));
+            }
+            count++;
+        }
+        while (!window.isEmpty()) {
+            out.write(result(window.poll()));
+        }
+        out.flush();
+        return count;
+    }
+
+    private static String result(Future<String> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IOException("Scoring failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    // Value of an integer option, its default when absent, or -1 when it is not a number
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        if (!options.containsKey(name)) return defaultValue;
+        try {
+            return Integer.parseInt(options.get(name));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // java RecommendationServer <ratings file> <movies file> [--port=<port>] [--threads=<n>]
+    //     [--engine=user|item|factors] [--user=<id> | --batch=<user id file> [--out=<file>]]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<>();
+        List<String> params = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int eq = arg.indexOf('=');
+                options.put(eq < 0 ? arg.substring(2) : arg.substring(2, eq), eq < 0 ? "" : arg.substring(eq + 1));
+            } else {
+                params.add(arg);
+            }
+        }
+        String engine = engineFor(options.getOrDefault("engine", "user"));
+        int threads = intOption(options, "threads", Runtime.getRuntime().availableProcessors());
+        int userId = intOption(options, "user", 0);
+        int port = intOption(options, "port", DEFAULT_PORT);
+        if (params.size() < 2 || engine == null || threads < 1 || userId < 0 || port < 0 || port > 65535) {
+            System.out.println("Usage: java RecommendationServer <ratings file> <movies file> [--port=<port>]"
+                    + " [--threads=<n>] [--engine=user|item|factors] [--user=<id> | --batch=<user id file> [--out=<file>]]");
+            return;
+        }
+        long startTime = System.currentTimeMillis();
+        MovieRecommendationApp app = new MovieRecommendationApp(params.get(0), params.get(1), false);
+        if (!options.containsKey("user") && !options.containsKey("batch")) {
+            app.startRatingLog();
+            app.startModelRebuilds();
+        }
+        app.loadModels();
+        System.err.println("Ready in " + (System.currentTimeMillis() - startTime) + " ms");
+
+        RecommendationServer server = new RecommendationServer(app, threads);
+        if (options.containsKey("user")) {
+            for (String movie : server.recommend(engine, userId)) {
+                System.out.println(movie);
+            }
+            server.shutdown();
+        } else if (options.containsKey("batch")) {
+            String outFile = options.get("out");
+            startTime = System.currentTimeMillis();
+            long count;
+            try (BufferedReader in = new BufferedReader(new FileReader(options.get("batch"), StandardCharsets.UTF_8));
+                 Writer out = new BufferedWriter(outFile == null
+                         ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                         : new FileWriter(outFile, StandardCharsets.UTF_8))) {
+                count = server.batch(engine, in, out, threads);
+            } finally {
+                server.shutdown();
+            }
+            long time = System.currentTimeMillis() - startTime;
+            System.err.println(count + " users scored in " + time + " ms (" + count * 1000 / Math.max(1, time)
+                    + " users/s), latency " + server.recommendLatency.summary());
+        } else {
+            HttpServer http = server.serve(port);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                http.stop(0);
+                server.shutdown();
+            }));
+            System.err.println("Serving on http://localhost:" + http.getAddress().getPort() + "/recommend?user=<id>");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// Movie titles sorted by their case-folded form, so an exact lookup ignoring case and a
+// prefix completion are a binary search plus the matches, not a scan of the catalog. Each
+// char is folded the way equalsIgnoreCase compares chars, so lookups agree with it.
+public class TitleIndex {
+
+    private final String[] folded;
+    private final String[] titles;
+    private final int[] movieIds;
+
+    public TitleIndex(Map<Integer, String> names) {
+        int n = names.size();
+        String[] keys = new String[n];
+        String[] values = new String[n];
+        int[] ids = new int[n];
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : names.entrySet()) {
+            ids[i] = entry.getKey();
+            values[i] = entry.getValue();
+            keys[i] = fold(values[i]);
+            i++;
+        }
+        // Equal folded titles are kept in id order, so a lookup finds the lowest id
+        Integer[] order = new Integer[n];
+        for (i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.<Integer, String>comparing(k -> keys[k]).thenComparingInt(k -> ids[k]));
+        folded = new String[n];
+        titles = new String[n];
+        movieIds = new int[n];
+        for (i = 0; i < n; i++) {
+            folded[i] = keys[order[i]];
+            titles[i] = values[order[i]];
+            movieIds[i] = ids[order[i]];
+        }
+    }
+
+    static String fold(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+
+    // Id of the movie with this title ignoring case (the lowest id if several share it), or -1
+    public int movieId(String title) {
+        String key = fold(title);
+        int i = lowerBound(key);
+        return i < folded.length && folded[i].equals(key) ? movieIds[i] : -1;
+    }
+
+    // Up to limit titles starting with prefix ignoring case, in folded alphabetical order
+    public List<String> complete(String prefix, int limit) {
+        String key = fold(prefix);
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(key); i < folded.length && result.size() < limit && folded[i].startsWith(key); i++) {
+            result.add(titles[i]);
+        }
+        return result;
+    }
+
+    public int size() {
+        return folded.length;
+    }
+
+    // First position whose folded title is not less than key
+    private int lowerBound(String key) {
+        int low = 0, high = folded.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (folded[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,68 @@
+// The n highest-scoring ids seen so far, kept in a min-heap of primitive arrays so picking
+// the top of m candidates costs O(m log n) instead of a full sort. Equal scores prefer the
+// lower id, which keeps results deterministic.
+public class TopN {
+
+    private final int[] ids;
+    private final float[] scores;
+    private int size;
+
+    public TopN(int n) {
+        ids = new int[n];
+        scores = new float[n];
+    }
+
+    public void offer(int id, float score) {
+        if (size < ids.length) {
+            ids[size] = id;
+            scores[size] = score;
+            int i = size++;
+            while (i > 0 && worse(i, (i - 1) / 2)) {
+                swap(i, (i - 1) / 2);
+                i = (i - 1) / 2;
+            }
+        } else if (size > 0 && (score > scores[0] || (score == scores[0] && id < ids[0]))) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0, size);
+        }
+    }
+
+    // Copy the ids and scores out best first; returns how many there are. Empties the heap.
+    public int drain(int[] outIds, float[] outScores) {
+        int count = size;
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        System.arraycopy(ids, 0, outIds, 0, count);
+        if (outScores != null) System.arraycopy(scores, 0, outScores, 0, count);
+        size = 0;
+        return count;
+    }
+
+    private void siftDown(int i, int size) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1, right = left + 1;
+            if (left < size && worse(left, smallest)) smallest = left;
+            if (right < size && worse(right, smallest)) smallest = right;
+            if (smallest == i) return;
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private boolean worse(int a, int b) {
+        return scores[a] < scores[b] || (scores[a] == scores[b] && ids[a] > ids[b]);
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
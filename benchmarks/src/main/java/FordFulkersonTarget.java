@@ -0,0 +1,30 @@
+import benchmarks.MaxFlowTarget;
+
+import java.io.IOException;
+
+public class FordFulkersonTarget implements MaxFlowTarget {
+
+    private FordFulkerson ff;
+
+    @Override
+    public void load(String tntpFile) throws IOException {
+        TntpNetwork tntp = TntpReader.read(tntpFile);
+        ff = new FordFulkerson(tntp.getNumberOfNodes() + 1);
+        ff.loadGraph(tntp);
+    }
+
+    @Override
+    public void setEngine(String engine) {
+        ff.setSolver(MaxFlowSolver.forName(engine));
+    }
+
+    @Override
+    public int getNumberOfNodes() {
+        return ff.getNetwork().getNumberOfVertices() - 1;
+    }
+
+    @Override
+    public int maxFlow(int source, int sink) {
+        return ff.fordFulkerson(source, sink);
+    }
+}
@@ -0,0 +1,14 @@
+import benchmarks.KmpTarget;
+
+public class KmpSearchTarget implements KmpTarget {
+
+    @Override
+    public boolean kmp(String text, String pattern) {
+        return KMPFileHandlingGUI.KMP(text, pattern);
+    }
+
+    @Override
+    public int[] buildKMPTable(String pattern) {
+        return KMPFileHandlingGUI.buildKMPTable(pattern);
+    }
+}
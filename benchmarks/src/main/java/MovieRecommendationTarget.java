@@ -0,0 +1,28 @@
+import benchmarks.RecommendationTarget;
+
+import java.util.List;
+
+public class MovieRecommendationTarget implements RecommendationTarget {
+
+    private MovieRecommendationApp app;
+
+    @Override
+    public void load(String ratingsFile, String moviesFile) {
+        app = new MovieRecommendationApp(ratingsFile, moviesFile, false);
+    }
+
+    @Override
+    public int findSimilarUsers(int userId) {
+        return app.getGraph().findSimilarUsers(userId).size();
+    }
+
+    @Override
+    public List<String> recommendMovies(int userId) {
+        return app.computeRecommendations(MovieRecommendationApp.USER_BASED, userId);
+    }
+
+    @Override
+    public List<String> recommendMoviesCached(int userId) {
+        return app.recommendMovies(userId);
+    }
+}
@@ -0,0 +1,146 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Bundled datasets and synthetic, scaled-up generators. Bundled files are resolved against
+// the repository root, taken from -Doops.root (default: the parent of the working directory,
+// i.e. running from benchmarks/). Generated files go to the temp directory and are reused.
+final class Datasets {
+
+    private static final String[] DEVICES = {"Google Pixel 5", "OnePlus 9", "Xiaomi Mi 11", "iPhone 12", "Samsung Galaxy S21"};
+    private static final String[] SYSTEMS = {"Android", "iOS"};
+    private static final String[] GENDERS = {"Male", "Female"};
+
+    private Datasets() {
+    }
+
+    static Path root() {
+        return Paths.get(System.getProperty("oops.root", "..")).toAbsolutePath().normalize();
+    }
+
+    static Path chicago() {
+        return root().resolve("FordFulkerson").resolve("Chicago.tntp");
+    }
+
+    static Path behaviorCsv() {
+        return root().resolve("KMP").resolve("user_behavior_dataset_KMP.csv");
+    }
+
+    static Path movieLensRatings() {
+        return root().resolve("MovieRecommendation").resolve("javaproject.txt");
+    }
+
+    static Path movieLensTitles() {
+        return root().resolve("MovieRecommendation").resolve("movies.csv");
+    }
+
+    private static Path generated(String name) throws IOException {
+        Path dir = Paths.get(System.getProperty("java.io.tmpdir"), "oops-benchmarks");
+        Files.createDirectories(dir);
+        return dir.resolve(name);
+    }
+
+    // rows x cols road grid with two-way links, node 1 in one corner and the last node opposite
+    static Path gridTntp(int rows, int cols, long seed) throws IOException {
+        Path file = generated("grid-" + rows + "x" + cols + "-" + seed + ".tntp");
+        if (Files.exists(file)) return file;
+        Random random = new Random(seed);
+        int links = 2 * (rows * (cols - 1) + cols * (rows - 1));
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write("<NUMBER OF ZONES> 0\n");
+            w.write("<NUMBER OF NODES> " + rows * cols + "\n");
+            w.write("<FIRST THRU NODE> 1\n");
+            w.write("<NUMBER OF LINKS> " + links + "\n");
+            w.write("<END OF METADATA>\n\n");
+            w.write("~\tinit_node\tterm_node\tcapacity\tlength\tfree_flow_time\tb\tpower\tspeed\ttoll\tlink_type\t;\n");
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    int node = r * cols + c + 1;
+                    if (c + 1 < cols) {
+                        writeLink(w, random, node, node + 1);
+                        writeLink(w, random, node + 1, node);
+                    }
+                    if (r + 1 < rows) {
+                        writeLink(w, random, node, node + cols);
+                        writeLink(w, random, node + cols, node);
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    private static void writeLink(BufferedWriter w, Random random, int from, int to) throws IOException {
+        int capacity = 400 + random.nextInt(1600);
+        w.write("\t" + from + "\t" + to + "\t" + capacity + "\t0.5\t1.2\t0.15\t4\t25\t0\t1\t;\n");
+    }
+
+    // Behavior-style CSV lines with a header, like user_behavior_dataset_KMP.csv
+    static Path behaviorCsv(int lines, long seed) throws IOException {
+        Path file = generated("behavior-" + lines + "-" + seed + ".csv");
+        if (Files.exists(file)) return file;
+        Random random = new Random(seed);
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write(Files.readAllLines(behaviorCsv()).get(0));
+            w.newLine();
+            for (int i = 1; i <= lines; i++) {
+                w.write(i + "," + DEVICES[random.nextInt(DEVICES.length)] + "," + SYSTEMS[random.nextInt(SYSTEMS.length)]
+                        + "," + (30 + random.nextInt(570)) + "," + (1 + random.nextInt(120)) / 10.0
+                        + "," + (300 + random.nextInt(2700)) + "," + (10 + random.nextInt(90))
+                        + "," + (100 + random.nextInt(2300)) + "," + (18 + random.nextInt(42))
+                        + "," + GENDERS[random.nextInt(GENDERS.length)] + "," + (1 + random.nextInt(5)));
+                w.newLine();
+            }
+        }
+        return file;
+    }
+
+    // MovieLens-style ratings where movie popularity falls off like 1/rank
+    static Path ratings(int users, int movies, int ratingsPerUser, long seed) throws IOException {
+        Path file = generated("ratings-" + users + "-" + movies + "-" + ratingsPerUser + "-" + seed + ".txt");
+        if (Files.exists(file)) return file;
+        Random random = new Random(seed);
+        double[] cumulative = new double[movies];
+        double total = 0;
+        for (int m = 0; m < movies; m++) {
+            total += 1.0 / (m + 1);
+            cumulative[m] = total;
+        }
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write("userId\tmovieId\trating\ttimestamp\n");
+            for (int u = 1; u <= users; u++) {
+                for (int i = 0; i < ratingsPerUser; i++) {
+                    int index = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+                    int movie = (index >= 0 ? index : -index - 1) + 1;
+                    w.write(u + "\t" + Math.min(movie, movies) + "\t" + (1 + random.nextInt(5)) + "\t964982703\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    static Path titles(int movies) throws IOException {
+        Path file = generated("titles-" + movies + ".csv");
+        if (Files.exists(file)) return file;
+        try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            w.write("movieId,title,genres\n");
+            for (int m = 1; m <= movies; m++) {
+                w.write(m + ",Movie " + m + " (2000),Drama\n");
+            }
+        }
+        return file;
+    }
+
+    static List<String> readLinesWithoutHeader(Path file) throws IOException {
+        List<String> lines = Files.readAllLines(file);
+        return lines.subList(1, lines.size());
+    }
+}
@@ -0,0 +1,49 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KmpBenchmark {
+
+    @Param({"behavior", "synthetic-100000"})
+    public String dataset;
+
+    @Param({"Android", "Samsung Galaxy S21"})
+    public String pattern;
+
+    private KmpTarget target;
+    private String[] lines;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        target = Targets.create("KmpSearchTarget", KmpTarget.class);
+        List<String> rows = dataset.equals("behavior")
+                ? Datasets.readLinesWithoutHeader(Datasets.behaviorCsv())
+                : Datasets.readLinesWithoutHeader(Datasets.behaviorCsv(Integer.parseInt(dataset.substring("synthetic-".length())), 42));
+        lines = rows.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public int[] buildKMPTable() {
+        return target.buildKMPTable(pattern);
+    }
+
+    // The per-line loop of KMPFileHandlingGUI.performSearch, without the file and GUI
+    @Benchmark
+    public int searchAllLines() {
+        int hits = 0;
+        for (String line : lines) {
+            if (target.kmp(line, pattern)) hits++;
+        }
+        return hits;
+    }
+}
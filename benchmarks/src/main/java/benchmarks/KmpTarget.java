@@ -0,0 +1,9 @@
+package benchmarks;
+
+// Implemented by KmpSearchTarget in the default package, next to the programs
+public interface KmpTarget {
+
+    boolean kmp(String text, String pattern);
+
+    int[] buildKMPTable(String pattern);
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaxFlowBenchmark {
+
+    @Param({"chicago", "grid-100", "grid-300"})
+    public String dataset;
+
+    @Param({"edmonds-karp", "dinic", "push-relabel"})
+    public String engine;
+
+    private MaxFlowTarget target;
+    private int source;
+    private int sink;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        target = Targets.create("FordFulkersonTarget", MaxFlowTarget.class);
+        if (dataset.equals("chicago")) {
+            target.load(Datasets.chicago().toString());
+        } else {
+            int side = Integer.parseInt(dataset.substring("grid-".length()));
+            target.load(Datasets.gridTntp(side, side, 42).toString());
+        }
+        target.setEngine(engine);
+        // Same pair as FordFulkerson.main: first node to the second-to-last node
+        source = 1;
+        sink = target.getNumberOfNodes() - 1;
+    }
+
+    @Benchmark
+    public int fordFulkerson() {
+        return target.maxFlow(source, sink);
+    }
+}
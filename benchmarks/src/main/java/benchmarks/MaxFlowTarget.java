@@ -0,0 +1,15 @@
+package benchmarks;
+
+import java.io.IOException;
+
+// Implemented by FordFulkersonTarget in the default package, next to the programs
+public interface MaxFlowTarget {
+
+    void load(String tntpFile) throws IOException;
+
+    void setEngine(String engine);
+
+    int getNumberOfNodes();
+
+    int maxFlow(int source, int sink);
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class RecommendationBenchmark {
+
+    @Param({"movielens", "synthetic-20000"})
+    public String dataset;
+
+    private RecommendationTarget target;
+    private int[] users;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        target = Targets.create("MovieRecommendationTarget", RecommendationTarget.class);
+        int userCount;
+        if (dataset.equals("movielens")) {
+            target.load(Datasets.movieLensRatings().toString(), Datasets.movieLensTitles().toString());
+            userCount = 610;
+        } else {
+            userCount = Integer.parseInt(dataset.substring("synthetic-".length()));
+            int movies = 10000;
+            target.load(Datasets.ratings(userCount, movies, 50, 42).toString(), Datasets.titles(movies).toString());
+        }
+        // A fixed spread of users so results are not dominated by one neighborhood
+        users = new int[64];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = 1 + (int) ((long) i * userCount / users.length);
+        }
+    }
+
+    private int nextUser() {
+        int user = users[next];
+        next = (next + 1) % users.length;
+        return user;
+    }
+
+    @Benchmark
+    public int findSimilarUsers() {
+        return target.findSimilarUsers(nextUser());
+    }
+
+    @Benchmark
+    public List<String> recommendMovies() {
+        return target.recommendMovies(nextUser());
+    }
+
+    @Benchmark
+    public List<String> recommendMoviesCached() {
+        return target.recommendMoviesCached(nextUser());
+    }
+}
@@ -0,0 +1,17 @@
+package benchmarks;
+
+import java.util.List;
+
+// Implemented by MovieRecommendationTarget in the default package, next to the programs
+public interface RecommendationTarget {
+
+    void load(String ratingsFile, String moviesFile);
+
+    int findSimilarUsers(int userId);
+
+    // Computed afresh on every call
+    List<String> recommendMovies(int userId);
+
+    // Served from the result cache once computed
+    List<String> recommendMoviesCached(int userId);
+}
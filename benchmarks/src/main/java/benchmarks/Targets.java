@@ -0,0 +1,18 @@
+package benchmarks;
+
+// The programs live in the default package, which named packages cannot import, and JMH
+// refuses benchmarks in the default package. Small adapters in the default package implement
+// the target interfaces and are looked up by name once per trial.
+final class Targets {
+
+    private Targets() {
+    }
+
+    static <T> T create(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create benchmark target " + className, e);
+        }
+    }
+}